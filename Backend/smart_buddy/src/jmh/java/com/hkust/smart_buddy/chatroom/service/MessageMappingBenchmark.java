@@ -0,0 +1,92 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.dto.ChatHistoryResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.common.util.CursorUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping and JSON serialization of one chat history page, as done per /chat-history request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageMappingBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    @Param({"200", "10000"})
+    public int contentLength;
+
+    private List<Message> messages;
+    private Page<MessageResponseDto> page;
+    private ChatHistoryResponseDto history;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        // Same configuration Spring Boot applies to the MVC ObjectMapper
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String content = "a".repeat(contentLength);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        messages = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            messages.add(Message.builder()
+                    .recordId((long) i)
+                    .messageId("msg-" + i)
+                    .userId("user-123-uuid-456")
+                    .content(content)
+                    .sender(i % 2 == 0 ? MessageConstants.SENDER_USER : MessageConstants.SENDER_AI)
+                    .createdDate(now.minusSeconds(i))
+                    .build());
+        }
+
+        List<MessageResponseDto> dtos = mapPage();
+        page = new PageImpl<>(dtos, PageRequest.of(0, pageSize), 10L * pageSize);
+        Message last = messages.getLast();
+        history = ChatHistoryResponseDto.builder()
+                .messages(dtos)
+                .nextCursor(CursorUtil.encode(last.getCreatedDate(), last.getRecordId()))
+                .hasMore(true)
+                .build();
+    }
+
+    @Benchmark
+    public List<MessageResponseDto> mapPage() {
+        return messages.stream()
+                .map(MessageService::convertToResponseDto)
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeCursorHistory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(history);
+    }
+}
@@ -0,0 +1,63 @@
+package com.hkust.smart_buddy.common.util;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtUtilBenchmark {
+    private static final String SECRET = "dlNuWEwpXJch0fZYvy8TyE8NtNK9JIPN";
+    private static final long EXPIRATION = 3600000;
+    private static final int DISTINCT_TOKENS = 4096;
+
+    private JwtUtil jwtUtil;
+    private JwtUtil singleEntryCacheJwtUtil;
+    private String sessionToken;
+    private String[] distinctTokens;
+    private int nextToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, EXPIRATION, 10000, new SimpleMeterRegistry());
+        singleEntryCacheJwtUtil = new JwtUtil(SECRET, EXPIRATION, 1, new SimpleMeterRegistry());
+        sessionToken = jwtUtil.generateToken("benchmark-user", UuidUtil.generateTimeOrderedUuid());
+        jwtUtil.decodeToken(sessionToken);
+
+        distinctTokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            distinctTokens[i] = jwtUtil.generateToken("benchmark-user-" + i, UuidUtil.generateTimeOrderedUuid());
+        }
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("benchmark-user", "user-123-uuid-456");
+    }
+
+    /**
+     * Repeated decode of one session token, served from the verified-token cache
+     */
+    @Benchmark
+    public Claims decodeToken_Cached() {
+        return jwtUtil.decodeToken(sessionToken);
+    }
+
+    /**
+     * Rotates through far more tokens than the cache holds, so nearly every call verifies the signature
+     */
+    @Benchmark
+    public Claims decodeToken_Uncached() {
+        nextToken = (nextToken + 1) % DISTINCT_TOKENS;
+        return singleEntryCacheJwtUtil.decodeToken(distinctTokens[nextToken]);
+    }
+}
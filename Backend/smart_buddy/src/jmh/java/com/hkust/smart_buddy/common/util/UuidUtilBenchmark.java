@@ -0,0 +1,36 @@
+package com.hkust.smart_buddy.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UuidUtilBenchmark {
+
+    @Benchmark
+    public String generateTimeOrderedUuid() {
+        return UuidUtil.generateTimeOrderedUuid();
+    }
+
+    /**
+     * Contended case: all threads share the per-JVM timestamp/sequence counter
+     */
+    @Benchmark
+    @Threads(4)
+    public String generateTimeOrderedUuid_Contended() {
+        return UuidUtil.generateTimeOrderedUuid();
+    }
+
+    /**
+     * Random UUIDv4 from SecureRandom, for comparison
+     */
+    @Benchmark
+    public String generateUuid() {
+        return UuidUtil.generateUuid();
+    }
+}
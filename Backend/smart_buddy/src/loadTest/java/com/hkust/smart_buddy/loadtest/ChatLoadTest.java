@@ -0,0 +1,239 @@
+package com.hkust.smart_buddy.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.SmartBuddyApplication;
+import com.hkust.smart_buddy.loadtest.LatencyRecorder.EndpointSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end throughput of the login, send-message and read-history flow against an in-memory H2
+ * database migrated by Flyway, so it runs offline without MySQL. Excluded from {@code test};
+ * run it with {@code ./gradlew loadTest}. See {@link LoadTestSettings} for the knobs.
+ */
+@SpringBootTest(classes = SmartBuddyApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class ChatLoadTest {
+
+    private static final String LOGIN_ENDPOINT = "POST /smart_buddy/auth/tokens";
+    private static final String SEND_ENDPOINT = "POST /smart_buddy/chatroom/messages";
+    private static final String HISTORY_ENDPOINT = "GET /smart_buddy/chatroom/chat-history";
+    private static final String PASSWORD = "loadtest-password";
+    private static final List<String> QUESTIONS = List.of(
+            "What should I pack for a week in Kyoto in autumn?",
+            "Cheapest way to get from Hong Kong airport to Central?",
+            "Suggest a three day itinerary for Taipei with night markets",
+            "Is it worth buying a rail pass for Switzerland?");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private LoadTestSettings settings;
+
+    @Test
+    void chatFlow_ConfiguredUserMix_ReportsLatencyAndThroughputPerEndpoint() throws Exception {
+        settings = LoadTestSettings.fromSystemProperties();
+        List<String> usernames = registerUsers();
+
+        runPhase(usernames, settings.warmup(), new LatencyRecorder());
+        LatencyRecorder recorder = new LatencyRecorder();
+        Duration elapsed = runPhase(usernames, settings.duration(), recorder);
+
+        List<EndpointSummary> summaries = recorder.summarize(elapsed);
+        printReport(summaries, elapsed);
+        writeReport(summaries, elapsed);
+
+        settings.mix().forEach((action, weight) -> {
+            if (weight > 0) {
+                assertTrue(summaries.stream().anyMatch(summary -> summary.endpoint().equals(endpointOf(action))),
+                        "No requests were recorded for " + endpointOf(action));
+            }
+        });
+        for (EndpointSummary summary : summaries) {
+            double errorRatio = (double) summary.errors() / summary.requests();
+            assertTrue(errorRatio <= settings.maxErrorRatio(),
+                    summary.endpoint() + " error ratio " + errorRatio + " exceeds " + settings.maxErrorRatio());
+        }
+    }
+
+    private List<String> registerUsers() throws Exception {
+        List<String> usernames = IntStream.range(0, settings.users())
+                .mapToObj(i -> "loadtest-user-" + i)
+                .toList();
+        List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+        try (ExecutorService registrations = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String username : usernames) {
+                responses.add(registrations.submit(() -> send(post("/smart_buddy/auth/users", Map.of(
+                        "username", username,
+                        "password", PASSWORD,
+                        "confirmPassword", PASSWORD,
+                        "email", username + "@loadtest.local")))));
+            }
+        }
+        for (Future<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode(), "Registering load test user: " + response.get().body());
+        }
+        return usernames;
+    }
+
+    private Duration runPhase(List<String> usernames, Duration length, LatencyRecorder recorder) {
+        long start = System.nanoTime();
+        long deadline = start + length.toNanos();
+        // close() waits for every virtual user to reach the deadline
+        try (ExecutorService virtualUsers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String username : usernames) {
+                virtualUsers.submit(() -> runVirtualUser(username, deadline, recorder));
+            }
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private void runVirtualUser(String username, long deadline, LatencyRecorder recorder) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String token = login(username, recorder);
+        while (System.nanoTime() < deadline) {
+            switch (settings.pick(random.nextInt(settings.totalWeight()))) {
+                case LOGIN -> {
+                    String refreshed = login(username, recorder);
+                    token = refreshed != null ? refreshed : token;
+                }
+                case SEND -> timed(SEND_ENDPOINT, post("/smart_buddy/chatroom/messages", token, Map.of(
+                        "content", QUESTIONS.get(random.nextInt(QUESTIONS.size())))), recorder);
+                case HISTORY -> timed(HISTORY_ENDPOINT, get("/smart_buddy/chatroom/chat-history?cursor=&size="
+                        + settings.historyPageSize(), token), recorder);
+            }
+            if (!settings.thinkTime().isZero()) {
+                try {
+                    Thread.sleep(settings.thinkTime());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private String login(String username, LatencyRecorder recorder) {
+        HttpResponse<String> response = timed(LOGIN_ENDPOINT, post("/smart_buddy/auth/tokens", Map.of(
+                "username", username,
+                "password", PASSWORD)), recorder);
+        if (response == null || response.statusCode() != 200) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(response.body()).path("data").path("token").asText(null);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private HttpResponse<String> timed(String endpoint, HttpRequest request, LatencyRecorder recorder) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest post(String path, Map<String, String> body) {
+        return post(path, null, body);
+    }
+
+    private HttpRequest post(String path, String token, Map<String, String> body) {
+        try {
+            return authorized(HttpRequest.newBuilder(uri(path)), token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest get(String pathAndQuery, String token) {
+        return authorized(HttpRequest.newBuilder(uri(pathAndQuery)), token).GET().build();
+    }
+
+    // A user whose login failed sends no token, so its requests count as errors
+    private static HttpRequest.Builder authorized(HttpRequest.Builder builder, String token) {
+        return token == null ? builder : builder.header("Authorization", "Bearer " + token);
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create("http://localhost:" + port + pathAndQuery);
+    }
+
+    private static String endpointOf(LoadTestSettings.Action action) {
+        return switch (action) {
+            case LOGIN -> LOGIN_ENDPOINT;
+            case SEND -> SEND_ENDPOINT;
+            case HISTORY -> HISTORY_ENDPOINT;
+        };
+    }
+
+    private void printReport(List<EndpointSummary> summaries, Duration elapsed) {
+        System.out.printf("%nLoad test: %d users, %s measured, mix %s%n",
+                settings.users(), elapsed, settings.mix());
+        System.out.printf("%-42s %9s %7s %10s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (EndpointSummary summary : summaries) {
+            System.out.printf("%-42s %9d %7d %10.1f %9.2f %9.2f %9.2f%n",
+                    summary.endpoint(), summary.requests(), summary.errors(), summary.throughputPerSecond(),
+                    summary.p50Millis(), summary.p99Millis(), summary.p999Millis());
+        }
+    }
+
+    private void writeReport(List<EndpointSummary> summaries, Duration elapsed) throws IOException {
+        Files.createDirectories(settings.reportDir());
+        Path reportFile = settings.reportDir().resolve("chat-load-test.json");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), Map.of(
+                "users", settings.users(),
+                "mix", settings.mix(),
+                "elapsedMillis", elapsed.toMillis(),
+                "endpoints", summaries));
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+    }
+}
@@ -0,0 +1,205 @@
+package com.hkust.smart_buddy.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.SmartBuddyApplication;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Holds many idle chat sockets open and reports the heap each one costs, then checks that replies are still pushed.
+ * Client and server run in the same JVM, so the figure includes the JDK client's side of every connection and is
+ * an upper bound for the server. Run it with {@code ./gradlew loadTest --tests '*ChatWebSocketSoakTest'}
+ * and raise {@code ulimit -n} above twice the connection count first.
+ */
+@SpringBootTest(classes = SmartBuddyApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class ChatWebSocketSoakTest {
+
+    private static final String PASSWORD = "loadtest-password";
+    private static final int CONNECT_BATCH_SIZE = 500;
+    private static final int REPLY_SAMPLE_SIZE = 10;
+    private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(30);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicInteger closedConnections = new AtomicInteger();
+
+    /**
+     * {@code ./gradlew loadTest -Dloadtest.ws-connections=20000 -Dloadtest.ws-hold-seconds=300}
+     */
+    record SoakSettings(int connections, int users, Duration hold, long maxBytesPerConnection, Path reportDir) {
+        static SoakSettings fromSystemProperties() {
+            return new SoakSettings(
+                    Integer.getInteger("loadtest.ws-connections", 2000),
+                    Integer.getInteger("loadtest.ws-users", 50),
+                    Duration.ofSeconds(Long.getLong("loadtest.ws-hold-seconds", 30L)),
+                    Long.getLong("loadtest.ws-max-bytes-per-connection", 128L * 1024),
+                    Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest")));
+        }
+    }
+
+    @Test
+    void idleSockets_HeldOpen_ReportsHeapPerConnectionAndStillPushesReplies() throws Exception {
+        SoakSettings settings = SoakSettings.fromSystemProperties();
+        List<String> tokens = registerAndLogIn(settings.users());
+
+        long heapBefore = settledHeapBytes();
+        List<SocketListener> listeners = new ArrayList<>();
+        List<WebSocket> sockets = new ArrayList<>();
+        for (int start = 0; start < settings.connections(); start += CONNECT_BATCH_SIZE) {
+            List<CompletableFuture<WebSocket>> batch = new ArrayList<>();
+            for (int i = start; i < Math.min(start + CONNECT_BATCH_SIZE, settings.connections()); i++) {
+                SocketListener listener = new SocketListener();
+                listeners.add(listener);
+                batch.add(httpClient.newWebSocketBuilder()
+                        .header("Authorization", "Bearer " + tokens.get(i % tokens.size()))
+                        .buildAsync(URI.create("ws://localhost:" + port + "/smart_buddy/chatroom/ws"), listener));
+            }
+            batch.forEach(socket -> sockets.add(socket.join()));
+        }
+        long heapAfter = settledHeapBytes();
+        long bytesPerConnection = (heapAfter - heapBefore) / settings.connections();
+
+        Thread.sleep(settings.hold());
+        int droppedWhileIdle = closedConnections.get();
+
+        int sampleSize = Math.min(REPLY_SAMPLE_SIZE, sockets.size());
+        for (int i = 0; i < sampleSize; i++) {
+            sockets.get(i).sendText(objectMapper.writeValueAsString(Map.of("content", "Where should I eat in Osaka?")), true);
+        }
+        int repliesPushed = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            JsonNode reply = listeners.get(i).reply.get(REPLY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            assertEquals(MessageConstants.SOCKET_FRAME_REPLY, reply.path("type").asText());
+            repliesPushed++;
+        }
+        sockets.forEach(socket -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "").join());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("connections", settings.connections());
+        report.put("heldSeconds", settings.hold().toSeconds());
+        report.put("heapBytesBefore", heapBefore);
+        report.put("heapBytesAfter", heapAfter);
+        report.put("heapBytesPerConnection", bytesPerConnection);
+        report.put("droppedWhileIdle", droppedWhileIdle);
+        report.put("repliesPushed", repliesPushed);
+        System.out.printf("%nWebSocket soak: %d connections held %s, %d bytes of heap per connection, "
+                        + "%d dropped while idle, %d/%d replies pushed%n",
+                settings.connections(), settings.hold(), bytesPerConnection, droppedWhileIdle, repliesPushed, sampleSize);
+        Files.createDirectories(settings.reportDir());
+        Path reportFile = settings.reportDir().resolve("chat-websocket-soak.json");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+
+        assertEquals(0, droppedWhileIdle, "Idle connections were closed during the hold");
+        assertTrue(bytesPerConnection <= settings.maxBytesPerConnection(),
+                bytesPerConnection + " bytes per connection exceeds " + settings.maxBytesPerConnection());
+    }
+
+    private List<String> registerAndLogIn(int users) throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String username = "soak-user-" + i;
+            HttpResponse<String> registered = httpClient.send(post("/smart_buddy/auth/users", Map.of(
+                    "username", username,
+                    "password", PASSWORD,
+                    "confirmPassword", PASSWORD,
+                    "email", username + "@loadtest.local")), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, registered.statusCode(), "Registering soak test user: " + registered.body());
+            HttpResponse<String> login = httpClient.send(post("/smart_buddy/auth/tokens", Map.of(
+                    "username", username,
+                    "password", PASSWORD)), HttpResponse.BodyHandlers.ofString());
+            tokens.add(objectMapper.readTree(login.body()).path("data").path("token").asText());
+        }
+        return tokens;
+    }
+
+    private HttpRequest post(String path, Map<String, String> body) throws JsonProcessingException {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    private static long settledHeapBytes() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // Kept small on purpose: one of these lives per connection and counts towards the measured heap
+    private class SocketListener implements WebSocket.Listener {
+        private final CompletableFuture<JsonNode> reply = new CompletableFuture<>();
+        private StringBuilder partial;
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            if (!last) {
+                partial = partial == null ? new StringBuilder() : partial;
+                partial.append(data);
+            } else {
+                String text = partial == null ? data.toString() : partial.append(data).toString();
+                partial = null;
+                try {
+                    JsonNode frame = objectMapper.readTree(text);
+                    if (MessageConstants.SOCKET_FRAME_REPLY.equals(frame.path("type").asText())) {
+                        reply.complete(frame);
+                    }
+                } catch (JsonProcessingException e) {
+                    reply.completeExceptionally(e);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closedConnections.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            closedConnections.incrementAndGet();
+            reply.completeExceptionally(error);
+        }
+    }
+}
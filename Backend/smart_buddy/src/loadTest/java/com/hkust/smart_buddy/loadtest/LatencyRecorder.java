@@ -0,0 +1,66 @@
+package com.hkust.smart_buddy.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects every request latency per endpoint so percentiles are exact rather than estimated.
+ * Failed requests count towards latency as well as the error total.
+ */
+class LatencyRecorder {
+
+    private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long elapsedNanos, boolean success) {
+        latencies.computeIfAbsent(endpoint, key -> new ConcurrentLinkedQueue<>()).add(elapsedNanos);
+        if (!success) {
+            errors.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+        }
+    }
+
+    List<EndpointSummary> summarize(Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return latencies.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> {
+                    long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).toArray();
+                    Arrays.sort(sorted);
+                    LongAdder failed = errors.get(entry.getKey());
+                    return new EndpointSummary(
+                            entry.getKey(),
+                            sorted.length,
+                            failed == null ? 0 : failed.sum(),
+                            sorted.length / seconds,
+                            percentileMillis(sorted, 0.50),
+                            percentileMillis(sorted, 0.99),
+                            percentileMillis(sorted, 0.999));
+                })
+                .toList();
+    }
+
+    // Nearest-rank percentile
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+
+    record EndpointSummary(
+            String endpoint,
+            long requests,
+            long errors,
+            double throughputPerSecond,
+            double p50Millis,
+            double p99Millis,
+            double p999Millis) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.hkust.smart_buddy.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test knobs, read from {@code loadtest.*} system properties so CI can pass them through Gradle:
+ * {@code ./gradlew loadTest -Dloadtest.users=200 -Dloadtest.mix=login:1,send:2,history:7}
+ */
+record LoadTestSettings(
+        int users,
+        Duration warmup,
+        Duration duration,
+        Duration thinkTime,
+        Map<Action, Integer> mix,
+        int historyPageSize,
+        double maxErrorRatio,
+        Path reportDir) {
+
+    enum Action {
+        LOGIN, SEND, HISTORY
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.users", 50),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5L)),
+                Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30L)),
+                Duration.ofMillis(Long.getLong("loadtest.think-time-ms", 0L)),
+                parseMix(System.getProperty("loadtest.mix", "login:1,send:4,history:5")),
+                Integer.getInteger("loadtest.history-page-size", 20),
+                Double.parseDouble(System.getProperty("loadtest.max-error-ratio", "0.01")),
+                Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest")));
+    }
+
+    /**
+     * Pick the next action for a virtual user, weighted by the configured mix.
+     * @param roll uniformly random value in [0, total weight)
+     */
+    Action pick(int roll) {
+        int remaining = roll;
+        for (Map.Entry<Action, Integer> entry : mix.entrySet()) {
+            remaining -= entry.getValue();
+            if (remaining < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalArgumentException("Roll " + roll + " is outside the mix weight " + totalWeight());
+    }
+
+    int totalWeight() {
+        return mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static Map<Action, Integer> parseMix(String mix) {
+        Map<Action, Integer> weights = new EnumMap<>(Action.class);
+        for (String part : mix.split(",")) {
+            String[] actionAndWeight = part.trim().split(":");
+            if (actionAndWeight.length != 2) {
+                throw new IllegalArgumentException("Mix entries must look like action:weight, got: " + part);
+            }
+            int weight = Integer.parseInt(actionAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative, got: " + part);
+            }
+            weights.put(Action.valueOf(actionAndWeight[0].trim().toUpperCase()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Mix must give at least one action a positive weight: " + mix);
+        }
+        return weights;
+    }
+}
@@ -18,4 +18,6 @@ public class AuthConstants {
     public static final String PASSWORD_MISMATCH = "Password and confirm password do not match";
     public static final String USERNAME_EXISTS = "Username already exists";
     public static final String VALIDATION_FAILED = "Validation failed";
+    public static final String LOGIN_THROTTLED = "Too many login attempts in progress, please retry shortly";
+    public static final String PASSWORD_HASHING_BUSY = "Server is busy, please retry shortly";
 }
@@ -6,6 +6,7 @@ import com.hkust.smart_buddy.auth.dto.TokenDto;
 import com.hkust.smart_buddy.auth.dto.CredentialDto;
 import com.hkust.smart_buddy.auth.service.TokenService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,8 +23,10 @@ public class TokenController {
     private final TokenService tokenService;
 
     @PostMapping("/tokens")
-    public ResponseEntity<ApiResponse<TokenDto>> createToken(@RequestBody CredentialDto credentialDto) {
-        TokenDto tokenDto = tokenService.createToken(credentialDto.getUsername(), credentialDto.getPassword());
+    public ResponseEntity<ApiResponse<TokenDto>> createToken(@RequestBody CredentialDto credentialDto,
+                                                         HttpServletRequest request) {
+        TokenDto tokenDto = tokenService.createToken(credentialDto.getUsername(), credentialDto.getPassword(),
+                request.getRemoteAddr());
         ApiResponse<TokenDto> response = ApiResponse.<TokenDto>builder()
                 .status(HttpStatus.OK.value())
                 .message(AuthConstants.LOGIN_SUCCESS)
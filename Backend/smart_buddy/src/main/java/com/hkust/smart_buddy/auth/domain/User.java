@@ -4,6 +4,9 @@ import com.hkust.smart_buddy.common.constants.DatabaseConstants;
 import com.hkust.smart_buddy.common.domain.AbstractEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -21,6 +24,11 @@ public class User extends AbstractEntity {
     @Serial
     private static final long serialVersionUID = 3544909864440647692L;
 
+    @Id
+    @Column(name = DatabaseConstants.RECORD_ID, nullable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long recordId;
+
     @NotNull
     @Size(max = 36)
     @Column(name = DatabaseConstants.USER_ID, nullable = false, length = 36)
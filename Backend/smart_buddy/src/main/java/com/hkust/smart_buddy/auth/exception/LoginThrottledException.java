@@ -0,0 +1,7 @@
+package com.hkust.smart_buddy.auth.exception;
+
+public class LoginThrottledException extends RuntimeException {
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
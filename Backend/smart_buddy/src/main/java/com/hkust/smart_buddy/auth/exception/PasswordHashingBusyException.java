@@ -0,0 +1,7 @@
+package com.hkust.smart_buddy.auth.exception;
+
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -2,13 +2,41 @@ package com.hkust.smart_buddy.auth.repository;
 
 import com.hkust.smart_buddy.auth.domain.User;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByUserId(@NotNull String userId);
+
+    /**
+     * Usernames in record ID order, one keyset page at a time, without loading whole users
+     */
+    List<UsernameRow> findByRecordIdGreaterThanOrderByRecordIdAsc(Long recordId, Pageable pageable);
+
+    /**
+     * Replace a password hash, unless the password was changed since {@code previousPassword} was read
+     * @return the number of users updated, 0 or 1
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password, u.lastModifiedDate = :modifiedDate, "
+            + "u.recordVersion = u.recordVersion + 1 where u.userId = :userId and u.password = :previousPassword")
+    int updatePassword(@Param("userId") String userId, @Param("previousPassword") String previousPassword,
+                       @Param("password") String password, @Param("modifiedDate") LocalDateTime modifiedDate);
+
+    interface UsernameRow {
+        Long getRecordId();
+        String getUsername();
+    }
 }
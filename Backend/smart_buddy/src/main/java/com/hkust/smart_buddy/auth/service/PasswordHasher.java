@@ -0,0 +1,170 @@
+package com.hkust.smart_buddy.auth.service;
+
+import com.hkust.smart_buddy.auth.constants.AuthConstants;
+import com.hkust.smart_buddy.auth.exception.LoginThrottledException;
+import com.hkust.smart_buddy.auth.exception.PasswordHashingBusyException;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on a small dedicated pool so a login burst cannot take every CPU core from chat traffic.
+ * At most {@code concurrency} hashes run at once and at most {@code queueCapacity} more wait; beyond that
+ * requests are rejected immediately. A verification is also rejected while the same username or client address
+ * already has {@code maxInFlightPerKey} verifications queued or running, so one caller cannot fill the queue.
+ * <p>
+ * Hashes whose BCrypt cost differs from {@code auth.bcrypt.strength} are reported by {@link #needsRehash}, so the
+ * cost can be tuned up or down and existing hashes follow on their owners' next login.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final PasswordEncoder passwordEncoder;
+    private final int strength;
+    private final int maxInFlightPerKey;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Value("${auth.bcrypt.strength}") int strength,
+                          @Value("${auth.password-hashing.concurrency}") int concurrency,
+                          @Value("${auth.password-hashing.queue-capacity}") int queueCapacity,
+                          @Value("${auth.password-hashing.max-in-flight-per-key}") int maxInFlightPerKey,
+                          MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+        this.maxInFlightPerKey = maxInFlightPerKey;
+        this.meterRegistry = meterRegistry;
+        this.workers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hasher-", 0).daemon(true).factory());
+        Gauge.builder(MetricsConstants.PASSWORD_HASHING_QUEUED, workers.getQueue(), BlockingQueue::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check a login attempt on the hashing pool, waiting for the result
+     * @throws LoginThrottledException if the username or client address already has too many checks in flight
+     * @throws PasswordHashingBusyException if the hashing pool is at capacity
+     */
+    public boolean matches(String rawPassword, String encodedPassword, String username, String clientAddress) {
+        String usernameKey = "username:" + (username == null ? "" : username.toLowerCase(Locale.ROOT));
+        String addressKey = "address:" + clientAddress;
+        if (!tryAdmit(usernameKey)) {
+            throw reject(MetricsConstants.REASON_PER_KEY_LIMIT, new LoginThrottledException(AuthConstants.LOGIN_THROTTLED));
+        }
+        try {
+            if (!tryAdmit(addressKey)) {
+                throw reject(MetricsConstants.REASON_PER_KEY_LIMIT, new LoginThrottledException(AuthConstants.LOGIN_THROTTLED));
+            }
+            try {
+                return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+            } finally {
+                release(addressKey);
+            }
+        } finally {
+            release(usernameKey);
+        }
+    }
+
+    /**
+     * Hash a new password on the hashing pool, waiting for the result
+     * @throws PasswordHashingBusyException if the hashing pool is at capacity
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Hash a password in the background for a rehash. Skipped unless no hashing is running or queued, so a rehash
+     * never holds up a login; the owner's next login tries again. The check is not atomic with the submit, so a
+     * check arriving at the same moment may still wait behind one rehash.
+     * @return completes with the new hash, or with null if skipped
+     */
+    public CompletableFuture<String> encodeWhenIdle(String rawPassword) {
+        if (workers.getActiveCount() > 0 || !workers.getQueue().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), workers);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * @return true if the hash was made with a different BCrypt cost than the configured one
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    private <T> T run(Supplier<T> hashing) {
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(hashing, workers);
+        } catch (RejectedExecutionException e) {
+            throw reject(MetricsConstants.REASON_QUEUE_FULL, new PasswordHashingBusyException(AuthConstants.PASSWORD_HASHING_BUSY));
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private boolean tryAdmit(String key) {
+        if (inFlight.merge(key, 1, Integer::sum) > maxInFlightPerKey) {
+            release(key);
+            return false;
+        }
+        return true;
+    }
+
+    private void release(String key) {
+        // Drop idle keys so the map only holds callers with work in flight
+        inFlight.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private RuntimeException reject(String reason, RuntimeException exception) {
+        meterRegistry.counter(MetricsConstants.PASSWORD_HASHING_REJECTIONS, MetricsConstants.TAG_REASON, reason)
+                .increment();
+        return exception;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Password hashing did not finish within {}s", SHUTDOWN_TIMEOUT_SECONDS);
+            workers.shutdownNow();
+        }
+    }
+}
@@ -1,26 +1,47 @@
 package com.hkust.smart_buddy.auth.service;
 
 import com.hkust.smart_buddy.auth.constants.AuthConstants;
+import com.hkust.smart_buddy.auth.domain.User;
 import com.hkust.smart_buddy.auth.dto.TokenDto;
 import com.hkust.smart_buddy.auth.exception.UserNotExistException;
 import com.hkust.smart_buddy.auth.exception.WrongPasswordException;
 import com.hkust.smart_buddy.auth.repository.UserRepository;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
 import com.hkust.smart_buddy.common.util.JwtUtil;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class TokenService {
+    private final UserCache userCache;
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final MeterRegistry meterRegistry;
+    // Stores rehashed passwords, keeping the database round trip off the hashing pool
+    private final Executor rehashWriter =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("password-rehash-", 0).factory());
 
-    public TokenDto createToken(String username, String password) {
-        return userRepository.findByUsername(username)
+    /**
+     * @param clientAddress address of the caller, used to limit concurrent password checks per client
+     */
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public TokenDto createToken(String username, String password, String clientAddress) {
+        return userCache.findByUsername(username)
                 .map(user -> {
-                    if (passwordEncoder.matches(password, user.getPassword())) {
+                    if (passwordHasher.matches(password, user.getPassword(), username, clientAddress)) {
+                        if (passwordHasher.needsRehash(user.getPassword())) {
+                            rehash(user, password);
+                        }
                         String token = jwtUtil.generateToken(user.getUsername(), user.getUserId());
                         return TokenDto.builder()
                                 .token(token)
@@ -31,4 +52,21 @@ public class TokenService {
                 })
                 .orElseThrow(() -> new UserNotExistException(AuthConstants.USER_NOT_EXIST));
     }
+
+    // Re-hash with the configured BCrypt cost in the background, so the login does not pay for a second hash
+    private void rehash(User user, String password) {
+        String previousPassword = user.getPassword();
+        passwordHasher.encodeWhenIdle(password)
+                .thenAcceptAsync(rehashed -> {
+                    if (rehashed != null && userRepository.updatePassword(user.getUserId(), previousPassword,
+                            rehashed, LocalDateTime.now()) > 0) {
+                        userCache.evict(user);
+                        meterRegistry.counter(MetricsConstants.PASSWORD_REHASHES).increment();
+                    }
+                }, rehashWriter)
+                .exceptionally(e -> {
+                    log.warn("Rehashing the password of user {} failed", user.getUserId(), e);
+                    return null;
+                });
+    }
 }
@@ -0,0 +1,112 @@
+package com.hkust.smart_buddy.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hkust.smart_buddy.auth.domain.User;
+import com.hkust.smart_buddy.auth.repository.UserRepository;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Read-through cache of users by username and by user ID, in front of {@link UserRepository}.
+ * <p>
+ * Misses are cached too, as empty entries, so repeated logins with an unknown username and registration
+ * existence checks do not reach the database. Empty entries expire after {@code negativeTtlSeconds}, which
+ * bounds how long a user registered through another instance stays invisible here; registrations through this
+ * instance replace the empty entry immediately via {@link #put}.
+ * <p>
+ * Usernames are keyed case-insensitively, matching the case-insensitive collation of the USERNAME column.
+ * Any code that changes a user must call {@link #evict} afterwards.
+ */
+@Component
+public class UserCache {
+    private final UserRepository userRepository;
+    private final Cache<String, Optional<User>> byUsername;
+    private final Cache<String, Optional<User>> byUserId;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${user.cache.max-size}") long maxSize,
+                     @Value("${user.cache.ttl-seconds}") long ttlSeconds,
+                     @Value("${user.cache.negative-ttl-seconds}") long negativeTtlSeconds,
+                     MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        Expiry<String, Optional<User>> expiry = new PresenceExpiry(
+                Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds));
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(expiry)
+                .recordStats()
+                .build();
+        this.byUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(expiry)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, MetricsConstants.USER_CACHE_BY_USERNAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, byUserId, MetricsConstants.USER_CACHE_BY_USER_ID);
+    }
+
+    public Optional<User> findByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        return byUsername.get(usernameKey(username), key -> userRepository.findByUsername(username));
+    }
+
+    public Optional<User> findByUserId(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return byUserId.get(userId, userRepository::findByUserId);
+    }
+
+    /**
+     * Cache a user that was just inserted, replacing any cached "does not exist" entry for it
+     */
+    public void put(User user) {
+        byUsername.put(usernameKey(user.getUsername()), Optional.of(user));
+        byUserId.put(user.getUserId(), Optional.of(user));
+    }
+
+    /**
+     * Drop a user after it was changed or deleted, so the next lookup reads it again
+     */
+    public void evict(User user) {
+        evictUsername(user.getUsername());
+        byUserId.invalidate(user.getUserId());
+    }
+
+    public void evictUsername(String username) {
+        byUsername.invalidate(usernameKey(username));
+    }
+
+    private static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private record PresenceExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, Optional<User>> {
+
+        @Override
+        public long expireAfterCreate(String key, Optional<User> user, long currentTime) {
+            return (user.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<User> user, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<User> user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
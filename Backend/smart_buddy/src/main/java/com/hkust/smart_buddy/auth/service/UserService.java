@@ -7,9 +7,11 @@ import com.hkust.smart_buddy.auth.exception.PasswordMismatchException;
 import com.hkust.smart_buddy.auth.exception.UsernameExistsException;
 import com.hkust.smart_buddy.auth.repository.UserRepository;
 import com.hkust.smart_buddy.common.constants.DatabaseConstants;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
 import com.hkust.smart_buddy.common.util.UuidUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -18,37 +20,50 @@ import java.time.LocalDateTime;
 @Service
 public class UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-
-    private String generateUniqueUserId() {
-        return UuidUtil.generateUniqueId(candidateId -> 
-            userRepository.findByUserId(candidateId).isPresent()
-        );
-    }
+    private final UserCache userCache;
+    private final UsernameBloomFilter usernameBloomFilter;
+    private final PasswordHasher passwordHasher;
 
     private void validateUserDto(UserDto userDto) {
         if (!userDto.getPassword().equals(userDto.getConfirmPassword())) {
             throw new PasswordMismatchException(AuthConstants.PASSWORD_MISMATCH);
         }
 
-        if (userRepository.findByUsername(userDto.getUsername()).isPresent()) {
+        // A definite miss in the filter needs no query; the unique key still catches a concurrent registration
+        if (usernameBloomFilter.mightExist(userDto.getUsername())
+                && userCache.findByUsername(userDto.getUsername()).isPresent()) {
             throw new UsernameExistsException(AuthConstants.USERNAME_EXISTS);
         }
     }
 
+    @Timed(MetricsConstants.SERVICE_TIMER)
     public void createUser(UserDto userDto) {
         validateUserDto(userDto);
-        String userId = generateUniqueUserId();
         User user = new User();
-        user.setUserId(userId);
         user.setUsername(userDto.getUsername());
-        user.setPassword(passwordEncoder.encode(userDto.getPassword()));
+        user.setPassword(passwordHasher.encode(userDto.getPassword()));
         user.setEmail(userDto.getEmail());
         user.setCreatedBy(DatabaseConstants.DEFAULT_CREATED_BY);
         user.setCreatedDate(LocalDateTime.now());
         user.setLastModifiedBy(DatabaseConstants.DEFAULT_CREATED_BY);
         user.setLastModifiedDate(LocalDateTime.now());
         user.setRecordVersion(DatabaseConstants.DEFAULT_RECORD_VERSION);
-        userRepository.save(user);
+        try {
+            UuidUtil.insertWithUniqueId(DatabaseConstants.USER_ID_UNIQUE_INDEX, userId -> {
+                user.setUserId(userId);
+                return userRepository.save(user);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another registration took the username between validation and insert, possibly on another
+            // instance while this one still caches the username as free; ask the database directly
+            userCache.evictUsername(userDto.getUsername());
+            if (userRepository.findByUsername(userDto.getUsername()).isPresent()) {
+                usernameBloomFilter.add(userDto.getUsername());
+                throw new UsernameExistsException(AuthConstants.USERNAME_EXISTS);
+            }
+            throw e;
+        }
+        userCache.put(user);
+        usernameBloomFilter.add(user.getUsername());
     }
 }
@@ -0,0 +1,101 @@
+package com.hkust.smart_buddy.auth.service;
+
+import com.hkust.smart_buddy.auth.repository.UserRepository;
+import com.hkust.smart_buddy.auth.repository.UserRepository.UsernameRow;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import com.hkust.smart_buddy.common.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bloom filter of every existing username, so registration can skip the existence query for names that are
+ * definitely free. Filled from the user table at startup and kept current as users are created here.
+ * <p>
+ * Until the startup load finishes every username counts as possibly taken. Usernames registered through another
+ * instance are missing from this filter; their duplicates are still rejected by the unique key on USERNAME.
+ */
+@Slf4j
+@Component
+public class UsernameBloomFilter {
+    private final UserRepository userRepository;
+    private final BloomFilter filter;
+    private final int loadBatchSize;
+    private final Counter skippedLookups;
+    private volatile boolean loaded;
+
+    public UsernameBloomFilter(UserRepository userRepository,
+                               @Value("${user.bloom-filter.expected-usernames}") long expectedUsernames,
+                               @Value("${user.bloom-filter.false-positive-rate}") double falsePositiveRate,
+                               @Value("${user.bloom-filter.load-batch-size}") int loadBatchSize,
+                               MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.filter = new BloomFilter(expectedUsernames, falsePositiveRate);
+        this.loadBatchSize = loadBatchSize;
+        this.skippedLookups = Counter.builder(MetricsConstants.USERNAME_FILTER_SKIPPED_LOOKUPS)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConstants.USERNAME_FILTER_BYTES, filter, f -> f.getBitCount() / Byte.SIZE)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConstants.USERNAME_FILTER_FALSE_POSITIVE_RATE, filter, BloomFilter::estimatedFalsePositiveRate)
+                .register(meterRegistry);
+        log.info("Username Bloom filter sized for {} usernames at {} false positives: {} KiB, {} hash functions",
+                expectedUsernames, falsePositiveRate, filter.getBitCount() / Byte.SIZE / 1024, filter.getHashCount());
+    }
+
+    /**
+     * @return false only if no user has this username; true if one may
+     */
+    public boolean mightExist(String username) {
+        if (!loaded || username == null) {
+            return true;
+        }
+        boolean mightExist = filter.mightContain(key(username));
+        if (!mightExist) {
+            skippedLookups.increment();
+        }
+        return mightExist;
+    }
+
+    public void add(String username) {
+        filter.put(key(username));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            long count = 0;
+            long lastRecordId = 0;
+            List<UsernameRow> rows;
+            do {
+                rows = userRepository.findByRecordIdGreaterThanOrderByRecordIdAsc(lastRecordId,
+                        PageRequest.of(0, loadBatchSize));
+                for (UsernameRow row : rows) {
+                    add(row.getUsername());
+                }
+                count += rows.size();
+                if (!rows.isEmpty()) {
+                    lastRecordId = rows.getLast().getRecordId();
+                }
+            } while (rows.size() == loadBatchSize);
+            // Users created while loading were added by add() and are not lost
+            loaded = true;
+            log.info("Loaded {} usernames into the Bloom filter", count);
+        } catch (RuntimeException e) {
+            log.error("Loading the username Bloom filter failed; every registration will query the user table", e);
+        }
+    }
+
+    // Matches the case-insensitive collation of the USERNAME column
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
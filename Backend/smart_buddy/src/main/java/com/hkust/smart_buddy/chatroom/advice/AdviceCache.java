@@ -0,0 +1,169 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Generated advice shared across users, keyed by the normalized query, so a repeated question skips the model.
+ * Entries expire {@code ttlSeconds} after they were generated. Once {@code maxEntries} is reached, Caffeine's
+ * frequency-based admission keeps the most asked questions and turns away one-offs.
+ * <p>
+ * With {@code similarityEnabled}, a query that has no exact entry is also served by the cached query whose
+ * hashed word and word-pair vector is most similar, if the cosine similarity reaches {@code similarityThreshold}.
+ * That scans every entry, so keep {@code maxEntries} in the thousands when it is on.
+ */
+@Component
+public class AdviceCache {
+    // Power of two, so a hash maps to a dimension with a mask
+    private static final int DIMENSIONS = 1 << 12;
+    private static final String PAIR_SEPARATOR = "\u0000";
+
+    private final Cache<String, CachedAdvice> cache;
+    private final boolean similarityEnabled;
+    private final double similarityThreshold;
+    private final Counter exactHits;
+    private final Counter similarHits;
+    private final Counter misses;
+
+    public AdviceCache(@Value("${advice.cache.max-entries}") long maxEntries,
+                       @Value("${advice.cache.ttl-seconds}") long ttlSeconds,
+                       @Value("${advice.cache.similarity.enabled}") boolean similarityEnabled,
+                       @Value("${advice.cache.similarity.threshold}") double similarityThreshold,
+                       MeterRegistry meterRegistry) {
+        if (similarityThreshold <= 0 || similarityThreshold > 1) {
+            throw new IllegalArgumentException("Similarity threshold must be in (0, 1]");
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.similarityEnabled = similarityEnabled;
+        this.similarityThreshold = similarityThreshold;
+        this.exactHits = lookupCounter(meterRegistry, MetricsConstants.RESULT_HIT);
+        this.similarHits = lookupCounter(meterRegistry, MetricsConstants.RESULT_SIMILAR_HIT);
+        this.misses = lookupCounter(meterRegistry, MetricsConstants.RESULT_MISS);
+        Gauge.builder(MetricsConstants.ADVICE_CACHE_SIZE, cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return cached advice for this or, with similarity matching on, a similar enough query, or null
+     */
+    public String get(String query) {
+        String key = normalize(query);
+        // Read through the map view, which counts towards the entry's frequency but not Caffeine's own stats
+        CachedAdvice exact = cache.asMap().get(key);
+        if (exact != null) {
+            exactHits.increment();
+            return exact.advice();
+        }
+        if (similarityEnabled) {
+            String similarKey = findSimilarKey(vectorize(key));
+            CachedAdvice similar = similarKey == null ? null : cache.asMap().get(similarKey);
+            if (similar != null) {
+                similarHits.increment();
+                return similar.advice();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String query, String advice) {
+        String key = normalize(query);
+        cache.put(key, new CachedAdvice(advice, similarityEnabled ? vectorize(key) : null));
+    }
+
+    /**
+     * Case, accents written as separate marks, punctuation and spacing do not change the question being asked
+     */
+    static String normalize(String query) {
+        return Normalizer.normalize(query, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .strip();
+    }
+
+    private String findSimilarKey(TermVector query) {
+        if (query.indices().length == 0) {
+            return null;
+        }
+        float[] dense = new float[DIMENSIONS];
+        for (int i = 0; i < query.indices().length; i++) {
+            dense[query.indices()[i]] = query.weights()[i];
+        }
+        String bestKey = null;
+        double bestSimilarity = similarityThreshold;
+        for (Map.Entry<String, CachedAdvice> entry : cache.asMap().entrySet()) {
+            TermVector candidate = entry.getValue().vector();
+            if (candidate == null) {
+                continue;
+            }
+            double similarity = 0;
+            for (int i = 0; i < candidate.indices().length; i++) {
+                similarity += dense[candidate.indices()[i]] * candidate.weights()[i];
+            }
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                bestKey = entry.getKey();
+            }
+        }
+        return bestKey;
+    }
+
+    /**
+     * Unit-length vector of the query's words and adjacent word pairs, hashed into {@link #DIMENSIONS} signed buckets.
+     * Word pairs keep "tokyo to kyoto" and "kyoto to tokyo" apart.
+     */
+    static TermVector vectorize(String normalizedQuery) {
+        Map<Integer, Float> buckets = new HashMap<>();
+        String[] words = normalizedQuery.isEmpty() ? new String[0] : normalizedQuery.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            addTerm(buckets, words[i]);
+            if (i > 0) {
+                addTerm(buckets, words[i - 1] + PAIR_SEPARATOR + words[i]);
+            }
+        }
+        double norm = Math.sqrt(buckets.values().stream().mapToDouble(weight -> weight * weight).sum());
+        int[] indices = new int[buckets.size()];
+        float[] weights = new float[buckets.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Float> bucket : buckets.entrySet()) {
+            indices[i] = bucket.getKey();
+            weights[i] = (float) (bucket.getValue() / norm);
+            i++;
+        }
+        return new TermVector(indices, weights);
+    }
+
+    private static void addTerm(Map<Integer, Float> buckets, String term) {
+        // Spread String.hashCode's low-entropy bits before taking the bucket and sign from different ends
+        int hash = term.hashCode() * 0x9E3779B9;
+        float sign = hash < 0 ? -1f : 1f;
+        buckets.merge(hash & (DIMENSIONS - 1), sign, Float::sum);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(MetricsConstants.ADVICE_CACHE_LOOKUPS)
+                .tag(MetricsConstants.TAG_RESULT, result)
+                .register(meterRegistry);
+    }
+
+    private record CachedAdvice(String advice, TermVector vector) {
+    }
+
+    record TermVector(int[] indices, float[] weights) {
+    }
+}
@@ -0,0 +1,307 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.exception.AdviceGenerationException;
+import com.hkust.smart_buddy.chatroom.exception.AdviceQueueFullException;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded worker stage that generates AI advice off the HTTP request thread.
+ * At most {@code concurrency} generations run at once and at most {@code queueCapacity} more wait;
+ * beyond that, new work is rejected immediately instead of piling up.
+ * With virtual threads enabled each generation gets its own virtual thread, and waiting generations
+ * park on the concurrency permits instead of sitting in an executor queue.
+ * <p>
+ * A generation sends the model the user's recent conversation along with the query, assembled by the
+ * {@link ConversationContextAssembler} before anything else. Each admitted request has a prompt buffer of its own,
+ * which is cleared and reused rather than allocated per request.
+ * <p>
+ * Advice shaped by a conversation belongs to that user alone, so only queries asked without one are shared.
+ * Such advice found in the {@link AdviceCache} is delivered without waiting for a permit or calling the model.
+ * Identical queries, after the cache's normalization, that arrive while one of them is being generated share that
+ * generation instead of calling the model again; each request still receives and persists its own copy.
+ * A permit is held only while the model runs, so delivering the advice does not hold up the next generation.
+ */
+@Slf4j
+@Component
+public class AdvicePipeline {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final AdviceProvider adviceProvider;
+    private final AdviceCache adviceCache;
+    private final ConversationContextAssembler contextAssembler;
+    private final BlockingQueue<StringBuilder> promptBuffers;
+    private final Semaphore admissionPermits;
+    private final Semaphore workerPermits;
+    private final ExecutorService workers;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejections;
+    private final Timer queueWaitTimer;
+    private final Counter coalesced;
+    private final LongAdder generations = new LongAdder();
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public AdvicePipeline(AdviceProvider adviceProvider,
+                          AdviceCache adviceCache,
+                          ConversationContextAssembler contextAssembler,
+                          @Value("${advice.pipeline.concurrency}") int concurrency,
+                          @Value("${advice.pipeline.queue-capacity}") int queueCapacity,
+                          @Value("${spring.threads.virtual.enabled}") boolean virtualThreads,
+                          MeterRegistry meterRegistry) {
+        this.adviceProvider = adviceProvider;
+        this.adviceCache = adviceCache;
+        this.contextAssembler = contextAssembler;
+        this.meterRegistry = meterRegistry;
+        this.rejections = Counter.builder(MetricsConstants.ADVICE_REJECTIONS)
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder(MetricsConstants.ADVICE_QUEUE_WAIT_TIMER)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(MetricsConstants.ADVICE_COALESCED)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConstants.ADVICE_COALESCING_RATIO, this, AdvicePipeline::coalescingRatio)
+                .register(meterRegistry);
+        this.admissionPermits = new Semaphore(concurrency + queueCapacity);
+        this.workerPermits = new Semaphore(concurrency, true);
+        this.promptBuffers = new ArrayBlockingQueue<>(concurrency + queueCapacity);
+        for (int i = 0; i < concurrency + queueCapacity; i++) {
+            promptBuffers.add(new StringBuilder());
+        }
+        if (virtualThreads) {
+            this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("advice-worker-", 0).factory());
+        } else {
+            // The queue never grows past queueCapacity because every task holds an admission permit
+            this.workers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), Thread.ofPlatform().name("advice-worker-", 0).daemon(true).factory());
+        }
+    }
+
+    /**
+     * Admit a query into the pipeline. {@code onAdmitted} runs on the calling thread only once a slot is held,
+     * so a rejected request leaves nothing behind. {@code onAdvice} later runs on a worker thread.
+     * @param onAdmitted work to do on the caller thread once admitted, e.g. persisting the user message
+     * @param userId the user asking, whose recent conversation goes to the model with the query
+     * @param query the user query to generate advice for
+     * @param onAdvice receives the generated advice
+     * @return the result of {@code onAdmitted}
+     * @throws AdviceQueueFullException if the pipeline is at capacity
+     */
+    public <T> T submit(Supplier<T> onAdmitted, String userId, String query, Consumer<String> onAdvice) {
+        return admit(onAdmitted, queuedAt -> generate(userId, query, onAdvice, queuedAt));
+    }
+
+    /**
+     * Streaming variant of {@link #submit}. Chunks are handed to {@code onChunk} while the model is still
+     * producing them; {@code onAdvice} receives the assembled advice once, after the last chunk.
+     * @param onError receives the failure if generation does not complete
+     */
+    public <T> T submitStreaming(Supplier<T> onAdmitted, String userId, String query, Consumer<String> onChunk,
+                                 Consumer<String> onAdvice, Consumer<Throwable> onError) {
+        return admit(onAdmitted, queuedAt -> generateStreaming(userId, query, onChunk, onAdvice, onError, queuedAt));
+    }
+
+    private <T> T admit(Supplier<T> onAdmitted, LongConsumer generation) {
+        if (!admissionPermits.tryAcquire()) {
+            rejections.increment();
+            throw new AdviceQueueFullException(MessageConstants.ADVICE_QUEUE_FULL);
+        }
+        try {
+            T admitted = onAdmitted.get();
+            long queuedAt = System.nanoTime();
+            workers.execute(() -> generation.accept(queuedAt));
+            return admitted;
+        } catch (RuntimeException e) {
+            admissionPermits.release();
+            throw e;
+        }
+    }
+
+    private void generate(String userId, String query, Consumer<String> onAdvice, long queuedAt) {
+        adviceFor(userId, query, MetricsConstants.MODE_BLOCKING, queuedAt, shared -> { },
+                context -> adviceProvider.generateAdvice(query, context))
+                .whenComplete((advice, error) -> {
+                    try {
+                        if (error != null) {
+                            log.error("AI advice generation failed", unwrap(error));
+                        } else {
+                            onAdvice.accept(advice);
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("AI advice generation failed", e);
+                    } finally {
+                        admissionPermits.release();
+                    }
+                });
+    }
+
+    private void generateStreaming(String userId, String query, Consumer<String> onChunk,
+                                   Consumer<String> onAdvice, Consumer<Throwable> onError, long queuedAt) {
+        adviceFor(userId, query, MetricsConstants.MODE_STREAMING, queuedAt, onChunk,
+                context -> adviceProvider.streamAdvice(query, context, onChunk))
+                .whenComplete((advice, error) -> {
+                    try {
+                        if (error != null) {
+                            throw unwrap(error);
+                        }
+                        onAdvice.accept(advice);
+                    } catch (RuntimeException e) {
+                        log.error("AI advice streaming failed", e);
+                        onError.accept(e);
+                    } finally {
+                        admissionPermits.release();
+                    }
+                });
+    }
+
+    /**
+     * Advice from the cache, from an identical query already being generated, or from the model, in that order;
+     * straight from the model if the user has a conversation to send with the query.
+     * The returned future is complete unless another worker is generating the advice; it then completes on that
+     * worker, which also runs this request's delivery, so waiting for a shared answer ties up no worker.
+     * @param onShared receives advice this request did not generate itself before it is returned, so a stream can
+     *                 deliver it as its only chunk
+     * @param generation calls the model with the user's conversation context
+     */
+    private CompletableFuture<String> adviceFor(String userId, String query, String mode, long queuedAt,
+                                                Consumer<String> onShared, Function<String, String> generation) {
+        try {
+            String context = conversationContext(userId, query);
+            if (!context.isEmpty()) {
+                // Neither cached nor shared, or another user asking the same question would get this user's answer
+                return CompletableFuture.completedFuture(generateWithPermit(mode, queuedAt, context, generation));
+            }
+            String cached = adviceCache.get(query);
+            if (cached != null) {
+                onShared.accept(cached);
+                return CompletableFuture.completedFuture(cached);
+            }
+            String key = AdviceCache.normalize(query);
+            CompletableFuture<String> pending = new CompletableFuture<>();
+            CompletableFuture<String> leader = inFlight.putIfAbsent(key, pending);
+            if (leader != null) {
+                coalesced.increment();
+                return leader.thenApply(advice -> {
+                    onShared.accept(advice);
+                    return advice;
+                });
+            }
+            generations.increment();
+            try {
+                String advice = generateWithPermit(mode, queuedAt, context, generation);
+                // The canned reply stands in for advice the model could not give; it must not outlive the outage
+                if (!MessageConstants.ADVICE_FALLBACK.equals(advice)) {
+                    adviceCache.put(query, advice);
+                }
+                pending.complete(advice);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+            } finally {
+                // Only after the cache has the advice, so a query arriving now finds it in one place or the other
+                inFlight.remove(key, pending);
+            }
+            return pending;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String generateWithPermit(String mode, long queuedAt, String context,
+                                      Function<String, String> generation) throws InterruptedException {
+        // Never blocks on the platform pool, which has exactly `concurrency` threads
+        workerPermits.acquire();
+        queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        try {
+            return timeGeneration(mode, () -> generation.apply(context));
+        } finally {
+            workerPermits.release();
+        }
+    }
+
+    /**
+     * The user's conversation window, built in a reused buffer. Must be called holding an admission permit, which
+     * guarantees a free buffer. The model gets a copy, since a call abandoned on timeout may still be reading it.
+     */
+    private String conversationContext(String userId, String query) {
+        StringBuilder prompt = promptBuffers.remove();
+        try {
+            contextAssembler.appendWindow(userId, query, prompt);
+            return prompt.toString();
+        } catch (RuntimeException e) {
+            log.warn("Could not load the conversation of user {}, answering the query alone", userId, e);
+            return "";
+        } finally {
+            prompt.setLength(0);
+            promptBuffers.add(prompt);
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RuntimeException runtime
+                ? runtime
+                : new AdviceGenerationException(MessageConstants.ADVICE_FAILED, cause);
+    }
+
+    // Share of the requests that missed the cache which were answered by another request's generation
+    private double coalescingRatio() {
+        double shared = coalesced.count();
+        double total = shared + generations.sum();
+        return total == 0 ? 0 : shared / total;
+    }
+
+    // Times the model alone; persisting the advice afterwards is covered by the service timers
+    private String timeGeneration(String mode, Supplier<String> generation) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = MetricsConstants.OUTCOME_FAILURE;
+        try {
+            String advice = generation.get();
+            outcome = MetricsConstants.OUTCOME_SUCCESS;
+            return advice;
+        } finally {
+            sample.stop(Timer.builder(MetricsConstants.ADVICE_GENERATION_TIMER)
+                    .tag(MetricsConstants.TAG_MODE, mode)
+                    .tag(MetricsConstants.TAG_OUTCOME, outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("AI advice workers did not finish within {}s, abandoning queued advice", SHUTDOWN_TIMEOUT_SECONDS);
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import java.util.function.Consumer;
+
+/**
+ * Produces the AI travel advice for a user query. Calls may block for the whole model inference time,
+ * so they are only made from the {@link AdvicePipeline} workers, never from a request thread.
+ */
+public interface AdviceProvider {
+    String generateAdvice(String query);
+
+    /**
+     * Answer the query in the light of the conversation so far. Providers that have no use for the conversation
+     * answer the query alone.
+     * @param context the user's previous turns, oldest first, one "label: content" line each; empty if there are none
+     */
+    default String generateAdvice(String query, String context) {
+        return generateAdvice(query);
+    }
+
+    /**
+     * Produce the advice incrementally, handing each chunk to {@code onChunk} as soon as it exists.
+     * Providers that cannot stream deliver the whole advice as a single chunk.
+     * @return the complete advice, equal to the concatenation of all chunks
+     */
+    default String streamAdvice(String query, Consumer<String> onChunk) {
+        String advice = generateAdvice(query);
+        onChunk.accept(advice);
+        return advice;
+    }
+
+    /**
+     * Streaming variant of {@link #generateAdvice(String, String)}
+     */
+    default String streamAdvice(String query, String context, Consumer<String> onChunk) {
+        return streamAdvice(query, onChunk);
+    }
+}
@@ -0,0 +1,83 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository.TurnRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Builds the window of a user's previous turns that goes in front of a new question in the model prompt.
+ * The window holds at most {@code maxTurns} of the newest committed turns, oldest first, and never more than
+ * {@code maxChars} characters including the speaker labels; older turns that do not fit are left out whole.
+ * At roughly four characters per token, the default budget of 4000 characters is about 1000 tokens.
+ * <p>
+ * One indexed query reads the content, sender and creation time of the newest turns, nothing else.
+ * Messages still waiting in the write-behind buffer are not in the window yet.
+ */
+@Component
+public class ConversationContextAssembler {
+    private final MessageRepository messageRepository;
+    private final int maxTurns;
+    private final int maxChars;
+
+    public ConversationContextAssembler(MessageRepository messageRepository,
+                                        @Value("${advice.context.max-turns}") int maxTurns,
+                                        @Value("${advice.context.max-chars}") int maxChars) {
+        if (maxTurns < 1 || maxChars < 1) {
+            throw new IllegalArgumentException("Context window must allow at least one turn and one character");
+        }
+        this.messageRepository = messageRepository;
+        this.maxTurns = maxTurns;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Append the user's conversation window to {@code prompt}, one "label: content" line per turn.
+     * The caller owns the buffer, so a worker building many prompts can clear and reuse one instead of
+     * allocating a new one per request.
+     * @param pendingQuery the question about to be answered, which is usually committed by now; it comes after the
+     *                     window rather than in it, so a newest user turn with this content is skipped
+     * @return the number of turns appended
+     */
+    public int appendWindow(String userId, String pendingQuery, StringBuilder prompt) {
+        // One row more than the window, in case the first is the pending question
+        List<TurnRow> newestFirst = messageRepository
+                .findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(userId, PageRequest.of(0, maxTurns + 1));
+        int first = !newestFirst.isEmpty() && isPendingQuery(newestFirst.getFirst(), pendingQuery) ? 1 : 0;
+        int last = Math.min(newestFirst.size(), first + maxTurns);
+        int turns = 0;
+        int chars = 0;
+        for (int i = first; i < last; i++) {
+            int turnChars = lineLength(newestFirst.get(i));
+            if (chars + turnChars > maxChars) {
+                break;
+            }
+            chars += turnChars;
+            turns++;
+        }
+        prompt.ensureCapacity(prompt.length() + chars);
+        for (int i = first + turns - 1; i >= first; i--) {
+            TurnRow turn = newestFirst.get(i);
+            prompt.append(label(turn)).append(turn.getContent()).append('\n');
+        }
+        return turns;
+    }
+
+    private static boolean isPendingQuery(TurnRow turn, String pendingQuery) {
+        return MessageConstants.SENDER_USER.equals(turn.getSender()) && turn.getContent().equals(pendingQuery);
+    }
+
+    private static int lineLength(TurnRow turn) {
+        return label(turn).length() + turn.getContent().length() + 1;
+    }
+
+    private static String label(TurnRow turn) {
+        return MessageConstants.SENDER_AI.equals(turn.getSender())
+                ? MessageConstants.CONTEXT_LABEL_AI
+                : MessageConstants.CONTEXT_LABEL_USER;
+    }
+}
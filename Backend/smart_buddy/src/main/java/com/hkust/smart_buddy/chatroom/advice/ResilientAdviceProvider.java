@@ -0,0 +1,250 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.exception.AdviceGenerationException;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import com.hkust.smart_buddy.common.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Wraps the configured {@link AdviceProvider} (selected by {@code advice.provider.type}) so a slow or failing model
+ * degrades chat to a canned reply instead of tying up the advice workers:
+ * <ul>
+ *     <li>bulkhead: at most {@code maxConcurrent} calls reach the provider at once, counting calls that were
+ *     abandoned but have not returned yet</li>
+ *     <li>deadline: a call gets {@code timeoutMs} for the whole advice, or for the first chunk when streaming</li>
+ *     <li>retry: failed calls are retried up to {@code maxAttempts} in total, after a random wait of up to
+ *     {@code retryBackoffMs} doubled per attempt, within the same deadline. Timeouts are not retried.</li>
+ *     <li>circuit breaker: once too many recent calls failed or timed out, calls skip the provider for a while</li>
+ * </ul>
+ * Whenever no advice can be had, {@link MessageConstants#ADVICE_FALLBACK} is returned. A stream that fails after
+ * its first chunk was delivered cannot be replaced, so it ends with an {@link AdviceGenerationException}.
+ */
+@Slf4j
+@Primary
+@Component
+public class ResilientAdviceProvider implements AdviceProvider {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final AdviceProvider delegate;
+    private final Semaphore bulkhead;
+    private final long timeoutMs;
+    private final long streamTimeoutMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService calls;
+    private final MeterRegistry meterRegistry;
+    private final Counter retries;
+
+    public ResilientAdviceProvider(AdviceProvider delegate,
+                                   @Value("${advice.provider.max-concurrent}") int maxConcurrent,
+                                   @Value("${advice.provider.timeout-ms}") long timeoutMs,
+                                   @Value("${advice.stream.timeout-ms}") long streamTimeoutMs,
+                                   @Value("${advice.provider.max-attempts}") int maxAttempts,
+                                   @Value("${advice.provider.retry-backoff-ms}") long retryBackoffMs,
+                                   @Value("${advice.circuit-breaker.window-size}") int windowSize,
+                                   @Value("${advice.circuit-breaker.minimum-calls}") int minimumCalls,
+                                   @Value("${advice.circuit-breaker.failure-rate-threshold}") double failureRateThreshold,
+                                   @Value("${advice.circuit-breaker.open-ms}") long openMs,
+                                   MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.timeoutMs = timeoutMs;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, Duration.ofMillis(openMs));
+        // The bulkhead bounds these threads; virtual ones cost nothing while the model is thinking
+        this.calls = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("advice-call-", 0).factory());
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder(MetricsConstants.ADVICE_RETRIES)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConstants.ADVICE_CIRCUIT_OPEN, circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String generateAdvice(String query) {
+        return generateAdvice(query, "");
+    }
+
+    @Override
+    public String generateAdvice(String query, String context) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (int attempt = 1; ; attempt++) {
+            Attempt outcome = attempt(() -> delegate.generateAdvice(query, context), new CompletableFuture<>(),
+                    deadline, deadline);
+            if (outcome.advice() != null) {
+                return outcome.advice();
+            }
+            if (!outcome.retryable() || attempt >= maxAttempts || !backOff(attempt, deadline)) {
+                return fallback(outcome.failureReason());
+            }
+        }
+    }
+
+    @Override
+    public String streamAdvice(String query, Consumer<String> onChunk) {
+        return streamAdvice(query, "", onChunk);
+    }
+
+    @Override
+    public String streamAdvice(String query, String context, Consumer<String> onChunk) {
+        long start = System.nanoTime();
+        long firstChunkDeadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long streamDeadline = start + TimeUnit.MILLISECONDS.toNanos(streamTimeoutMs);
+        for (int attempt = 1; ; attempt++) {
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            AtomicBoolean chunkDelivered = new AtomicBoolean();
+            AtomicBoolean abandoned = new AtomicBoolean();
+            Attempt outcome = attempt(() -> delegate.streamAdvice(query, context, chunk -> {
+                // A call that was given up on may still be producing; its chunks must not reach the client
+                if (!abandoned.get()) {
+                    chunkDelivered.set(true);
+                    started.complete(null);
+                    onChunk.accept(chunk);
+                }
+            }), started, firstChunkDeadline, streamDeadline);
+            abandoned.set(true);
+            if (outcome.advice() != null) {
+                return outcome.advice();
+            }
+            if (chunkDelivered.get()) {
+                throw new AdviceGenerationException(MessageConstants.ADVICE_FAILED);
+            }
+            if (!outcome.retryable() || attempt >= maxAttempts || !backOff(attempt, firstChunkDeadline)) {
+                String fallback = fallback(outcome.failureReason());
+                onChunk.accept(fallback);
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * One call to the provider, waiting until {@code started} completes or {@code startDeadline} passes, then until
+     * the call returns or {@code finishDeadline} passes. {@code started} also completes when the call returns.
+     */
+    private Attempt attempt(Callable<String> generation, CompletableFuture<Void> started,
+                            long startDeadline, long finishDeadline) {
+        if (!circuitBreaker.tryAcquire()) {
+            return Attempt.failed(MetricsConstants.REASON_CIRCUIT_OPEN, false);
+        }
+        if (!acquireBulkhead(startDeadline)) {
+            circuitBreaker.release();
+            return Attempt.failed(MetricsConstants.REASON_BULKHEAD_FULL, false);
+        }
+
+        Future<String> call;
+        try {
+            call = calls.submit(() -> {
+                try {
+                    return generation.call();
+                } finally {
+                    started.complete(null);
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.release();
+            return Attempt.failed(MetricsConstants.REASON_BULKHEAD_FULL, false);
+        }
+
+        try {
+            started.get(remainingNanos(startDeadline), TimeUnit.NANOSECONDS);
+            String advice = call.get(remainingNanos(finishDeadline), TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            return Attempt.succeeded(advice);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            circuitBreaker.onFailure();
+            return Attempt.failed(MetricsConstants.REASON_TIMEOUT, false);
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            log.warn("Advice provider call failed", e.getCause());
+            return Attempt.failed(MetricsConstants.REASON_ERROR, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            circuitBreaker.release();
+            return Attempt.failed(MetricsConstants.REASON_TIMEOUT, false);
+        }
+    }
+
+    private boolean acquireBulkhead(long deadline) {
+        try {
+            return bulkhead.tryAcquire(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Full jitter, so retries from several workers after a shared hiccup do not arrive together
+    private boolean backOff(int attempt, long deadline) {
+        long waitMs = ThreadLocalRandom.current().nextLong((retryBackoffMs << (attempt - 1)) + 1);
+        if (TimeUnit.MILLISECONDS.toNanos(waitMs) >= remainingNanos(deadline)) {
+            return false;
+        }
+        try {
+            Thread.sleep(waitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    private String fallback(String reason) {
+        meterRegistry.counter(MetricsConstants.ADVICE_FALLBACKS, MetricsConstants.TAG_REASON, reason).increment();
+        return MessageConstants.ADVICE_FALLBACK;
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private record Attempt(String advice, String failureReason, boolean retryable) {
+        static Attempt succeeded(String advice) {
+            return new Attempt(advice, null, false);
+        }
+
+        static Attempt failed(String reason, boolean retryable) {
+            return new Attempt(null, reason, retryable);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        calls.shutdown();
+        if (!calls.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Advice provider calls did not finish within {}s", SHUTDOWN_TIMEOUT_SECONDS);
+            calls.shutdownNow();
+        }
+    }
+}
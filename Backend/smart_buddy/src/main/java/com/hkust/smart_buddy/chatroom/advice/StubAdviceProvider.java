@@ -0,0 +1,92 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.exception.AdviceGenerationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Local stand-in for the AI model. Echoes the query after a configurable delay
+ * so the pipeline can be exercised with realistic inference latency.
+ * When streaming, the first chunk arrives after {@code latencyMs} and each following word after {@code tokenLatencyMs}.
+ * <p>
+ * Faults can be injected to exercise {@link ResilientAdviceProvider}: a fraction {@code errorRate} of calls fail
+ * after the latency, and a fraction {@code slowRate} take {@code slowLatencyMs} longer before their first chunk.
+ */
+@Component
+@ConditionalOnProperty(name = "advice.provider.type", havingValue = "stub", matchIfMissing = true)
+public class StubAdviceProvider implements AdviceProvider {
+    private final long latencyMs;
+    private final long tokenLatencyMs;
+    private final double errorRate;
+    private final double slowRate;
+    private final long slowLatencyMs;
+
+    public StubAdviceProvider(@Value("${advice.stub.latency-ms}") long latencyMs,
+                              @Value("${advice.stub.token-latency-ms}") long tokenLatencyMs,
+                              @Value("${advice.stub.error-rate}") double errorRate,
+                              @Value("${advice.stub.slow-rate}") double slowRate,
+                              @Value("${advice.stub.slow-latency-ms}") long slowLatencyMs) {
+        this.latencyMs = latencyMs;
+        this.tokenLatencyMs = tokenLatencyMs;
+        this.errorRate = errorRate;
+        this.slowRate = slowRate;
+        this.slowLatencyMs = slowLatencyMs;
+    }
+
+    @Override
+    public String generateAdvice(String query) {
+        String advice = MessageConstants.AI_ADVICE_PREFIX + query;
+        simulateLatency(firstChunkLatency() + tokenLatencyMs * (splitIntoTokens(advice).length - 1));
+        injectFailure();
+        return advice;
+    }
+
+    @Override
+    public String streamAdvice(String query, Consumer<String> onChunk) {
+        String advice = MessageConstants.AI_ADVICE_PREFIX + query;
+        simulateLatency(firstChunkLatency());
+        injectFailure();
+        String[] tokens = splitIntoTokens(advice);
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                simulateLatency(tokenLatencyMs);
+            }
+            onChunk.accept(tokens[i]);
+        }
+        return advice;
+    }
+
+    private long firstChunkLatency() {
+        return slowRate > 0 && ThreadLocalRandom.current().nextDouble() < slowRate
+                ? latencyMs + slowLatencyMs
+                : latencyMs;
+    }
+
+    private void injectFailure() {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw new AdviceGenerationException(MessageConstants.ADVICE_INJECTED_FAILURE);
+        }
+    }
+
+    // Split after each whitespace run so the tokens concatenate back to the exact advice
+    private static String[] splitIntoTokens(String advice) {
+        return advice.split("(?<=\\s)(?=\\S)");
+    }
+
+    static void simulateLatency(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Advice generation interrupted", e);
+        }
+    }
+}
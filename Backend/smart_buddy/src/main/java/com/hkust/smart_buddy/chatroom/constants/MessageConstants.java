@@ -8,10 +8,43 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public class MessageConstants {
 
+    // Longest message content a user can send, in characters
+    public static final int MAX_CONTENT_CHARS = 10000;
+
     // Message sender types
     public static final String SENDER_USER = "U";
     public static final String SENDER_AI = "A";
 
     // AI response template
     public static final String AI_ADVICE_PREFIX = "Ai Advice for: ";
+
+    // Speaker labels of the conversation window handed to the model
+    public static final String CONTEXT_LABEL_USER = "User: ";
+    public static final String CONTEXT_LABEL_AI = "Assistant: ";
+
+    // AI advice pipeline error messages
+    public static final String ADVICE_QUEUE_FULL = "AI advice is busy, please retry shortly";
+    public static final String ADVICE_FAILED = "AI advice could not be generated";
+    public static final String ADVICE_INJECTED_FAILURE = "Injected advice failure";
+
+    // Canned reply used when the advice provider is slow, failing or at capacity
+    public static final String ADVICE_FALLBACK = "Our travel assistant is busy right now. Please ask again in a moment.";
+
+    // Message write-behind error messages
+    public static final String MESSAGE_WRITER_STOPPED = "Message writer is shutting down";
+
+    // Server-Sent Events names of the streaming chat endpoint
+    public static final String STREAM_EVENT_ACCEPTED = "accepted";
+    public static final String STREAM_EVENT_TOKEN = "token";
+    public static final String STREAM_EVENT_DONE = "done";
+    public static final String STREAM_EVENT_ERROR = "error";
+
+    // Frame types of the WebSocket chat channel
+    public static final String SOCKET_FRAME_ACCEPTED = "accepted";
+    public static final String SOCKET_FRAME_REPLY = "reply";
+    public static final String SOCKET_FRAME_ERROR = "error";
+
+    // WebSocket chat channel error messages
+    public static final String INVALID_SOCKET_MESSAGE = "Message must be a JSON object with a content field";
+    public static final String SOCKET_MESSAGE_FAILED = "Message could not be sent, please retry";
 }
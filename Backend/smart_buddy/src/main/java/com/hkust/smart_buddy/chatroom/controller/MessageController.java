@@ -1,31 +1,165 @@
 package com.hkust.smart_buddy.chatroom.controller;
 
+import com.hkust.smart_buddy.chatroom.dto.ChatHistoryResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageAcceptedDto;
+import com.hkust.smart_buddy.chatroom.dto.MessagePageDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageRequestDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageSyncResponseDto;
 import com.hkust.smart_buddy.chatroom.service.MessageService;
+import com.hkust.smart_buddy.common.constants.PaginationConstants;
+import com.hkust.smart_buddy.common.security.AuthenticatedUser;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 @RestController
 @RequestMapping("/smart_buddy/chatroom")
 @RequiredArgsConstructor
 public class MessageController {
+    private static final String HISTORY_PAGE_VIEW = "history-page";
+    private static final String HISTORY_CURSOR_VIEW = "history-cursor";
+    private static final String COMPACT_VIEW = "compact";
 
     private final MessageService messageService;
 
+    /**
+     * Chat history pages carry a weak ETag of the user's history version, the page asked for and the negotiated
+     * representation, set on the response by checkNotModified. A poll whose If-None-Match still matches gets 304
+     * without the page being loaded.
+     */
     @GetMapping("/chat-history")
-    public ResponseEntity<Page<MessageResponseDto>> getMessages(@RequestParam String token, Pageable pageable) {
-        return ResponseEntity.ok(messageService.getMessages(token, pageable));
+    public ResponseEntity<Page<MessageResponseDto>> getMessages(@AuthenticationPrincipal AuthenticatedUser user,
+                                                                Pageable pageable, NativeWebRequest webRequest) {
+        String eTag = historyETag(user, webRequest, HISTORY_PAGE_VIEW, pageable);
+        if (notModified(webRequest, eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(messageService.getMessages(user.userId(), pageable));
+    }
+
+    @GetMapping(value = "/chat-history", params = "cursor")
+    public ResponseEntity<ChatHistoryResponseDto> getMessagesByCursor(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "" + PaginationConstants.DEFAULT_PAGE_SIZE) int size,
+            NativeWebRequest webRequest) {
+        String eTag = historyETag(user, webRequest, HISTORY_CURSOR_VIEW, cursor, size);
+        if (notModified(webRequest, eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(messageService.getMessagesByCursor(user.userId(), cursor, size));
+    }
+
+    /**
+     * Cursor-paginated history in the compact format, for clients on slow links; same ETag handling as /chat-history
+     */
+    @GetMapping("/messages")
+    public ResponseEntity<MessagePageDto> getCompactMessages(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "" + PaginationConstants.DEFAULT_PAGE_SIZE) int size,
+            NativeWebRequest webRequest) {
+        String eTag = historyETag(user, webRequest, COMPACT_VIEW, cursor, size);
+        if (notModified(webRequest, eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(messageService.getCompactMessages(user.userId(), cursor, size));
+    }
+
+    /**
+     * Messages newer than {@code cursor}, oldest first, for clients catching up after a reconnect
+     */
+    @GetMapping("/messages/since")
+    public ResponseEntity<MessageSyncResponseDto> getMessagesSince(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "" + PaginationConstants.DEFAULT_PAGE_SIZE) int limit) {
+        return ResponseEntity.ok(messageService.getMessagesSince(user.userId(), cursor, limit));
     }
 
     @PostMapping("/messages")
-    public ResponseEntity<MessageResponseDto> createMessages(@Valid @RequestBody MessageRequestDto requestDto) {
-        MessageResponseDto createdMessage = messageService.createMessages(requestDto);
-        return ResponseEntity.ok(createdMessage);
+    public ResponseEntity<MessageAcceptedDto> createMessages(@AuthenticationPrincipal AuthenticatedUser user,
+                                                             @Valid @RequestBody MessageRequestDto requestDto) {
+        MessageAcceptedDto acceptedMessage = messageService.createMessages(user.userId(), requestDto);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(acceptedMessage);
+    }
+
+    @PostMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(@AuthenticationPrincipal AuthenticatedUser user,
+                                     @Valid @RequestBody MessageRequestDto requestDto) {
+        return messageService.streamMessages(user.userId(), requestDto);
+    }
+
+    /**
+     * The history version, then a hash of the view, its query parameters and the representation, so no two pages,
+     * page sizes or formats of one history version share a tag.
+     * Taken before the page is read, so a message committed in between makes the ETag stale rather than the page.
+     */
+    private String historyETag(AuthenticatedUser user, NativeWebRequest webRequest, Object... view) {
+        // Hashed from text, which is stable across instances, unlike the identity hash codes of enums in a Sort
+        int variant = (Arrays.toString(view) + representation(webRequest)).hashCode();
+        return "W/\"" + messageService.getHistoryVersion(user.userId()) + "-" + Integer.toHexString(variant) + "\"";
+    }
+
+    /**
+     * The format the response will be written in: CBOR when the most preferred type the client accepts admits CBOR
+     * but not JSON, which the converters otherwise pick first; JSON in every other case
+     */
+    private static MediaType representation(NativeWebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        try {
+            List<MediaType> acceptable = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            acceptable.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+            for (MediaType type : acceptable) {
+                if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return MediaType.APPLICATION_JSON;
+                }
+                if (type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return MediaType.APPLICATION_CBOR;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Left for content negotiation to reject
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Set the ETag and {@code Vary: Accept} on the response, 304 included, and check If-None-Match
+     * @return true if the client's copy is current and the 304 is prepared
+     */
+    private static boolean notModified(NativeWebRequest webRequest, String eTag) {
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return webRequest.checkNotModified(eTag);
     }
 }
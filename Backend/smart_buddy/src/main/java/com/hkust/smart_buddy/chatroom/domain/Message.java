@@ -9,7 +9,14 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 @Entity
-@Table(name = DatabaseConstants.MESSAGE_TABLE)
+@Table(name = DatabaseConstants.MESSAGE_TABLE, indexes = {
+        @Index(name = DatabaseConstants.MESSAGE_ID_UNIQUE_INDEX, columnList = DatabaseConstants.MESSAGE_ID, unique = true),
+        @Index(name = DatabaseConstants.MESSAGE_USER_HISTORY_INDEX,
+                columnList = DatabaseConstants.USER_ID + ", " + DatabaseConstants.CREATED_DT + " DESC, "
+                        + DatabaseConstants.RECORD_ID + " DESC"),
+        @Index(name = DatabaseConstants.MESSAGE_CREATED_DT_INDEX,
+                columnList = DatabaseConstants.CREATED_DT + ", " + DatabaseConstants.RECORD_ID)
+})
 @SuperBuilder
 @Getter
 @Setter
@@ -18,6 +25,19 @@ import lombok.experimental.SuperBuilder;
 @AllArgsConstructor
 public class Message extends AbstractEntity {
 
+    // Pooled so a batch of inserts needs one generator round trip per allocation, unlike IDENTITY,
+    // which makes Hibernate insert each row on its own to read back the key
+    @Id
+    @Column(name = DatabaseConstants.RECORD_ID, nullable = false)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = DatabaseConstants.MESSAGE_ID_GENERATOR)
+    @TableGenerator(name = DatabaseConstants.MESSAGE_ID_GENERATOR,
+            table = DatabaseConstants.ID_GENERATOR_TABLE,
+            pkColumnName = DatabaseConstants.ID_GENERATOR_NAME,
+            valueColumnName = DatabaseConstants.ID_GENERATOR_NEXT_VAL,
+            pkColumnValue = DatabaseConstants.MESSAGE_TABLE,
+            allocationSize = DatabaseConstants.MESSAGE_ID_ALLOCATION_SIZE)
+    private Long recordId;
+
     @NotNull
     @Size(max = 36)
     @Column(name = DatabaseConstants.MESSAGE_ID, nullable = false, length = 36)
@@ -0,0 +1,96 @@
+package com.hkust.smart_buddy.chatroom.domain;
+
+import com.hkust.smart_buddy.common.constants.DatabaseConstants;
+import com.hkust.smart_buddy.common.domain.AbstractEntity;
+import com.hkust.smart_buddy.common.util.CompressionUtil;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message moved out of the hot MESSAGE table by the archiver, with its content compressed
+ */
+@Entity
+@Table(name = DatabaseConstants.MESSAGE_ARCHIVE_TABLE, indexes = {
+        @Index(name = DatabaseConstants.MESSAGE_ARCHIVE_ID_UNIQUE_INDEX, columnList = DatabaseConstants.MESSAGE_ID,
+                unique = true),
+        @Index(name = DatabaseConstants.MESSAGE_ARCHIVE_USER_HISTORY_INDEX,
+                columnList = DatabaseConstants.USER_ID + ", " + DatabaseConstants.CREATED_DT + " DESC, "
+                        + DatabaseConstants.RECORD_ID + " DESC")
+})
+@SuperBuilder
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageArchive extends AbstractEntity {
+
+    // The hot row's key, kept so keyset cursors order both tiers the same way
+    @Id
+    @Column(name = DatabaseConstants.RECORD_ID, nullable = false)
+    private Long recordId;
+
+    @NotNull
+    @Size(max = 36)
+    @Column(name = DatabaseConstants.MESSAGE_ID, nullable = false, length = 36)
+    private String messageId;
+
+    @NotNull
+    @Size(max = 36)
+    @Column(name = DatabaseConstants.USER_ID, nullable = false, length = 36)
+    private String userId;
+
+    // Deflated UTF-8, see CompressionUtil
+    @ToString.Exclude
+    @Column(name = DatabaseConstants.CONTENT, columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    @NotNull
+    @Size(max = 2)
+    @Column(name = DatabaseConstants.SENDER, nullable = false, length = 2)
+    private String sender; // 'A' for AI, 'U' for user
+
+    @Column(name = DatabaseConstants.ARCHIVED_DT)
+    private LocalDateTime archivedDate;
+
+    public static MessageArchive of(Message message, LocalDateTime archivedDate) {
+        return MessageArchive.builder()
+                .recordId(message.getRecordId())
+                .messageId(message.getMessageId())
+                .userId(message.getUserId())
+                .content(CompressionUtil.deflate(message.getContent()))
+                .sender(message.getSender())
+                .createdBy(message.getCreatedBy())
+                .createdDate(message.getCreatedDate())
+                .lastModifiedBy(message.getLastModifiedBy())
+                .lastModifiedDate(message.getLastModifiedDate())
+                // Left unset: with an assigned key, a set version would make Hibernate treat the row as detached.
+                // It is written as 0, which is what every message carries since messages are never updated.
+                .recordVersion(null)
+                .archivedDate(archivedDate)
+                .build();
+    }
+
+    /**
+     * The message as it was in the hot table, for code that serves both tiers alike
+     */
+    public Message toMessage() {
+        return Message.builder()
+                .recordId(recordId)
+                .messageId(messageId)
+                .userId(userId)
+                .content(CompressionUtil.inflate(content))
+                .sender(sender)
+                .createdBy(getCreatedBy())
+                .createdDate(getCreatedDate())
+                .lastModifiedBy(getLastModifiedBy())
+                .lastModifiedDate(getLastModifiedDate())
+                .recordVersion(getRecordVersion())
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.hkust.smart_buddy.chatroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistoryResponseDto {
+    private List<MessageResponseDto> messages;
+    private String nextCursor;
+    private boolean hasMore;
+    // Position of the newest message, for syncing newer messages later; only set on the first page
+    private String syncCursor;
+}
@@ -0,0 +1,18 @@
+package com.hkust.smart_buddy.chatroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Server-to-client frame of the WebSocket chat channel
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSocketFrameDto {
+    private String type;
+    private Object data;
+}
@@ -0,0 +1,14 @@
+package com.hkust.smart_buddy.chatroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageAcceptedDto {
+    private String messageId;
+}
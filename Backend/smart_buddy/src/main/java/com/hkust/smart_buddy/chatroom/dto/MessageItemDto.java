@@ -0,0 +1,19 @@
+package com.hkust.smart_buddy.chatroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Chat message in the compact history format, with the creation time in epoch milliseconds
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageItemDto {
+    private String content;
+    private String sender;
+    private long createdAt;
+}
@@ -0,0 +1,24 @@
+package com.hkust.smart_buddy.chatroom.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact chat history page: the messages, newest first, and the cursor of the next page, null on the last page
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePageDto {
+    private List<MessageItemDto> items;
+    private String cursor;
+    // Only on the first page, for GET /messages/since
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String syncCursor;
+}
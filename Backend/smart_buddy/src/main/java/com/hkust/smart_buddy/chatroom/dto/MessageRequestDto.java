@@ -1,5 +1,6 @@
 package com.hkust.smart_buddy.chatroom.dto;
 
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
@@ -13,9 +14,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class MessageRequestDto {
     @NotBlank(message = "Content cannot be blank")
-    @Size(max = 10000, message = "Content cannot exceed 10000 characters")
+    @Size(max = MessageConstants.MAX_CONTENT_CHARS, message = "Content cannot exceed 10000 characters")
     private String content;
-
-    @NotBlank(message = "Token cannot be blank")
-    private String token;
 }
@@ -0,0 +1,22 @@
+package com.hkust.smart_buddy.chatroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Messages newer than the client's sync cursor, oldest first
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSyncResponseDto {
+    private List<MessageResponseDto> messages;
+    // Pass back on the next sync; unchanged when there were no new messages
+    private String cursor;
+    private boolean hasMore;
+}
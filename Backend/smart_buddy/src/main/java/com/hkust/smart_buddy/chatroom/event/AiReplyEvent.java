@@ -0,0 +1,9 @@
+package com.hkust.smart_buddy.chatroom.event;
+
+import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+
+/**
+ * Published once an AI reply has been generated and handed to the message writer
+ */
+public record AiReplyEvent(String userId, MessageResponseDto message) {
+}
@@ -0,0 +1,11 @@
+package com.hkust.smart_buddy.chatroom.exception;
+
+public class AdviceGenerationException extends RuntimeException {
+    public AdviceGenerationException(String message) {
+        super(message);
+    }
+
+    public AdviceGenerationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.hkust.smart_buddy.chatroom.exception;
+
+public class AdviceQueueFullException extends RuntimeException {
+    public AdviceQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.hkust.smart_buddy.chatroom.repository;
+
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MessageArchiveRepository extends JpaRepository<MessageArchive, Long>, MessageArchiveStore {
+    long countByUserId(String userId);
+
+    /**
+     * Newest archived messages of a user, for history that runs past the hot tier
+     */
+    List<MessageArchive> findByUserIdOrderByCreatedDateDescRecordIdDesc(String userId, Pageable pageable);
+
+    /**
+     * Archived messages strictly before the (createdDate, recordId) position of a keyset cursor
+     */
+    @Query("SELECT m FROM MessageArchive m WHERE m.userId = :userId "
+            + "AND (m.createdDate < :createdDate OR (m.createdDate = :createdDate AND m.recordId < :recordId)) "
+            + "ORDER BY m.createdDate DESC, m.recordId DESC")
+    List<MessageArchive> findByUserIdBeforeCursor(@Param("userId") String userId,
+                                                  @Param("createdDate") LocalDateTime createdDate,
+                                                  @Param("recordId") Long recordId,
+                                                  Pageable pageable);
+}
@@ -0,0 +1,23 @@
+package com.hkust.smart_buddy.chatroom.repository;
+
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MessageArchiveStore {
+
+    /**
+     * Copy hot messages into the archive and delete them from the hot table, in one short transaction.
+     * Only the moved rows are locked, by primary key, so writers to the rest of the table are not held up.
+     * @throws org.springframework.dao.DataIntegrityViolationException if a message is already archived,
+     *         e.g. by another instance; nothing is moved
+     */
+    void moveToArchive(List<Message> messages, LocalDateTime archivedDate);
+
+    /**
+     * A user's archived messages, newest first, from an arbitrary offset rather than a page boundary
+     */
+    List<MessageArchive> findByUserIdNewestFirst(String userId, long offset, int limit);
+}
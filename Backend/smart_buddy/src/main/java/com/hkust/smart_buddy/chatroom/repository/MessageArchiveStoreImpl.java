@@ -0,0 +1,38 @@
+package com.hkust.smart_buddy.chatroom.repository;
+
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+class MessageArchiveStoreImpl implements MessageArchiveStore {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void moveToArchive(List<Message> messages, LocalDateTime archivedDate) {
+        messages.forEach(message -> entityManager.persist(MessageArchive.of(message, archivedDate)));
+        // A message archived already fails here, before anything is deleted
+        entityManager.flush();
+        entityManager.createQuery("DELETE FROM Message m WHERE m.recordId IN :recordIds")
+                .setParameter("recordIds", messages.stream().map(Message::getRecordId).toList())
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MessageArchive> findByUserIdNewestFirst(String userId, long offset, int limit) {
+        return entityManager.createQuery("SELECT m FROM MessageArchive m WHERE m.userId = :userId "
+                        + "ORDER BY m.createdDate DESC, m.recordId DESC", MessageArchive.class)
+                .setParameter("userId", userId)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,16 @@
+package com.hkust.smart_buddy.chatroom.repository;
+
+import com.hkust.smart_buddy.chatroom.domain.Message;
+
+import java.util.List;
+
+public interface MessageBatchRepository {
+
+    /**
+     * Insert new messages in one transaction, sent to the database as JDBC batches.
+     * Keys are assigned from the pooled generator, so no row is inserted on its own to read back its key.
+     * @throws org.springframework.dao.DataIntegrityViolationException if any row violates a constraint;
+     *         the whole batch is rolled back
+     */
+    void insertAll(List<Message> messages);
+}
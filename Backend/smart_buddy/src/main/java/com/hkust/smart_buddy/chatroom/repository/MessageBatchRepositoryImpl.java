@@ -0,0 +1,22 @@
+package com.hkust.smart_buddy.chatroom.repository;
+
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+class MessageBatchRepositoryImpl implements MessageBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insertAll(List<Message> messages) {
+        // persist, not merge: the entities are new even though their version is already set
+        messages.forEach(entityManager::persist);
+        entityManager.flush();
+    }
+}
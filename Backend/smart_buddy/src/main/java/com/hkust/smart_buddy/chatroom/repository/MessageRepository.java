@@ -1,15 +1,67 @@
 package com.hkust.smart_buddy.chatroom.repository;
 
 import com.hkust.smart_buddy.chatroom.domain.Message;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MessageRepository extends JpaRepository<Message, String> {
-    Page<Message> findByUserIdOrderByCreatedDateDesc(String userId, Pageable pageable);
+public interface MessageRepository extends JpaRepository<Message, String>, MessageBatchRepository {
     Optional<Message> findByMessageId(String messageId);
+    long countByUserId(String userId);
+
+    /**
+     * The user's messages newest first, with the record ID breaking ties between messages of the same second.
+     * Returns a List so no COUNT query is issued
+     */
+    List<Message> findByUserIdOrderByCreatedDateDescRecordIdDesc(String userId, Pageable pageable);
+
+    /**
+     * The oldest messages of all users created before {@code cutoff}, oldest first, for the archiver
+     */
+    List<Message> findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * The user's newest turns, newest first, reading only the columns a prompt needs
+     */
+    List<TurnRow> findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(String userId, Pageable pageable);
+
+    /**
+     * Next page of a keyset scan, strictly after the (createdDate, recordId) position of the previous page
+     */
+    @Query("SELECT m FROM Message m WHERE m.userId = :userId "
+            + "AND (m.createdDate < :createdDate OR (m.createdDate = :createdDate AND m.recordId < :recordId)) "
+            + "ORDER BY m.createdDate DESC, m.recordId DESC")
+    List<Message> findByUserIdBeforeCursor(@Param("userId") String userId,
+                                           @Param("createdDate") LocalDateTime createdDate,
+                                           @Param("recordId") Long recordId,
+                                           Pageable pageable);
+
+    /**
+     * First page of a sync from the beginning of the user's history, oldest first
+     */
+    List<Message> findByUserIdOrderByCreatedDateAscRecordIdAsc(String userId, Pageable pageable);
+
+    /**
+     * Messages strictly after the (createdDate, recordId) position of the client's last synced message, oldest first
+     */
+    @Query("SELECT m FROM Message m WHERE m.userId = :userId "
+            + "AND (m.createdDate > :createdDate OR (m.createdDate = :createdDate AND m.recordId > :recordId)) "
+            + "ORDER BY m.createdDate ASC, m.recordId ASC")
+    List<Message> findByUserIdAfterCursor(@Param("userId") String userId,
+                                          @Param("createdDate") LocalDateTime createdDate,
+                                          @Param("recordId") Long recordId,
+                                          Pageable pageable);
+
+    interface TurnRow {
+        String getContent();
+        String getSender();
+        LocalDateTime getCreatedDate();
+    }
 }
@@ -0,0 +1,120 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves chat messages older than {@code minAgeDays} from the hot MESSAGE table to the compressed archive,
+ * every {@code intervalMinutes}. Each run moves at most {@code maxBatchesPerRun} batches of {@code batchSize}
+ * messages, oldest first, each in its own transaction and with a {@code batchPauseMs} pause in between, so the
+ * hot table is never locked for long and a backlog is worked off over several runs.
+ * <p>
+ * Moving the oldest messages first keeps every archived message older than every hot one, which lets history
+ * reads continue from the hot tier straight into the archive.
+ */
+@Slf4j
+@Component
+public class MessageArchiver {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final MessageRepository messageRepository;
+    private final MessageArchiveRepository messageArchiveRepository;
+    private final long minAgeDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long batchPauseMs;
+    private final Counter archived;
+    private final Timer batchTimer;
+    private final ScheduledExecutorService scheduler;
+
+    public MessageArchiver(MessageRepository messageRepository,
+                           MessageArchiveRepository messageArchiveRepository,
+                           @Value("${message.archive.enabled}") boolean enabled,
+                           @Value("${message.archive.min-age-days}") long minAgeDays,
+                           @Value("${message.archive.batch-size}") int batchSize,
+                           @Value("${message.archive.max-batches-per-run}") int maxBatchesPerRun,
+                           @Value("${message.archive.batch-pause-ms}") long batchPauseMs,
+                           @Value("${message.archive.interval-minutes}") long intervalMinutes,
+                           MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.messageArchiveRepository = messageArchiveRepository;
+        this.minAgeDays = minAgeDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPauseMs = batchPauseMs;
+        this.archived = Counter.builder(MetricsConstants.MESSAGE_ARCHIVED)
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder(MetricsConstants.MESSAGE_ARCHIVE_BATCH_TIMER)
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("message-archiver").daemon(true).factory());
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::runSafely, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * One archiving run
+     * @return the number of messages moved
+     */
+    public int archiveOldMessages() throws InterruptedException {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        int moved = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (batch > 0) {
+                // Gives queued writers the hot table between batches
+                Thread.sleep(batchPauseMs);
+            }
+            List<Message> oldest = messageRepository.findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(
+                    cutoff, PageRequest.of(0, batchSize));
+            if (oldest.isEmpty()) {
+                break;
+            }
+            batchTimer.record(() -> messageArchiveRepository.moveToArchive(oldest, LocalDateTime.now()));
+            moved += oldest.size();
+            archived.increment(oldest.size());
+            if (oldest.size() < batchSize) {
+                break;
+            }
+        }
+        return moved;
+    }
+
+    private void runSafely() {
+        try {
+            int moved = archiveOldMessages();
+            if (moved > 0) {
+                log.info("Archived {} chat messages older than {} days", moved, minAgeDays);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Left for the next run; a failed batch moved nothing
+            log.error("Chat message archiving failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Message archiver did not stop within {}s", SHUTDOWN_TIMEOUT_SECONDS);
+        }
+    }
+}
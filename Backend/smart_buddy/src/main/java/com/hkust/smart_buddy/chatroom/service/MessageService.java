@@ -1,82 +1,314 @@
 package com.hkust.smart_buddy.chatroom.service;
 
+import com.hkust.smart_buddy.chatroom.advice.AdvicePipeline;
 import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import com.hkust.smart_buddy.chatroom.dto.ChatHistoryResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageAcceptedDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageItemDto;
+import com.hkust.smart_buddy.chatroom.dto.MessagePageDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageRequestDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageSyncResponseDto;
+import com.hkust.smart_buddy.chatroom.event.AiReplyEvent;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
 import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.service.RecentHistoryCache.HistoryEntry;
+import com.hkust.smart_buddy.chatroom.service.RecentHistoryCache.RecentHistory;
 import com.hkust.smart_buddy.common.constants.DatabaseConstants;
-import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import com.hkust.smart_buddy.common.constants.PaginationConstants;
 import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
-import com.hkust.smart_buddy.common.util.JwtUtil;
+import com.hkust.smart_buddy.common.dto.KeysetCursor;
+import com.hkust.smart_buddy.common.util.CursorUtil;
 import com.hkust.smart_buddy.common.util.UuidUtil;
-import io.jsonwebtoken.Claims;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class MessageService {
-    private final JwtUtil jwtUtil;
     private final MessageRepository messageRepository;
+    private final MessageArchiveRepository messageArchiveRepository;
+    private final AdvicePipeline advicePipeline;
+    private final MessageWriteBuffer messageWriteBuffer;
+    private final RecentHistoryCache recentHistoryCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public Page<MessageResponseDto> getMessages(String token, Pageable pageable) {
-        String userId = getCurrentUserId(token);
-        Page<Message> messages = messageRepository.findByUserIdOrderByCreatedDateDesc(userId, pageable);
-        List<MessageResponseDto> messageResponseList = messages.getContent().stream()
-                .map(this::convertToResponseDto)
+    @Value("${advice.stream.timeout-ms}")
+    private long streamTimeoutMs;
+
+    /**
+     * Version of the user's chat history that changes whenever one of their messages commits: the newest record ID
+     * and the message count. Served from the recent-history cache, so answering an unchanged poll reads no rows.
+     */
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public String getHistoryVersion(String userId) {
+        RecentHistory history = recentHistoryCache.get(userId);
+        Long newestRecordId = history.entries().isEmpty() ? 0L : history.entries().getFirst().recordId();
+        return newestRecordId + "-" + history.totalMessages();
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public Page<MessageResponseDto> getMessages(String userId, Pageable pageable) {
+        if (isServedByHistoryCache(pageable)) {
+            RecentHistory history = recentHistoryCache.get(userId);
+            List<MessageResponseDto> cachedPage = history.entries().stream()
+                    .skip(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .map(HistoryEntry::message)
+                    .toList();
+            return new PageImpl<>(cachedPage, pageable, history.totalMessages());
+        }
+        // Same order as the cached pages, so a page straddling the cache and the database repeats or skips nothing
+        Page<Message> messages = PageableExecutionUtils.getPage(
+                messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, pageable),
+                pageable, () -> messageRepository.countByUserId(userId));
+        List<Message> pageContent = messages.getContent();
+        long totalMessages = messages.getTotalElements();
+        // Archived messages follow the hot ones in the default order, so a page running past the hot tier continues
+        // in the archive, and the total counts both tiers so clients keep paging into it
+        if (pageable.isPaged() && pageable.getSort().isUnsorted()) {
+            if (pageContent.size() < pageable.getPageSize()) {
+                List<Message> combined = new ArrayList<>(pageContent);
+                messageArchiveRepository.findByUserIdNewestFirst(userId,
+                                Math.max(0, pageable.getOffset() - totalMessages),
+                                pageable.getPageSize() - pageContent.size())
+                        .forEach(archived -> combined.add(archived.toMessage()));
+                pageContent = combined;
+            }
+            totalMessages += messageArchiveRepository.countByUserId(userId);
+        }
+        List<MessageResponseDto> messageResponseList = pageContent.stream()
+                .map(MessageService::convertToResponseDto)
                 .toList();
-        return new PageImpl<>(messageResponseList, pageable, messages.getTotalElements());
+        return new PageImpl<>(messageResponseList, pageable, totalMessages);
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public ChatHistoryResponseDto getMessagesByCursor(String userId, String cursor, int size) {
+        int pageSize = Math.clamp(size, 1, PaginationConstants.MAX_PAGE_SIZE);
+        boolean firstPage = cursor == null || cursor.isBlank();
+        if (firstPage && pageSize <= recentHistoryCache.getMessagesPerUser()) {
+            RecentHistory history = recentHistoryCache.get(userId);
+            List<HistoryEntry> pageContent = history.entries().stream().limit(pageSize).toList();
+            boolean hasMore = history.totalMessages() > pageContent.size();
+            String nextCursor = null;
+            if (hasMore) {
+                HistoryEntry last = pageContent.getLast();
+                nextCursor = CursorUtil.encode(last.createdDate(), last.recordId());
+            }
+            String syncCursor = pageContent.isEmpty()
+                    ? null
+                    : CursorUtil.encode(pageContent.getFirst().createdDate(), pageContent.getFirst().recordId());
+            return ChatHistoryResponseDto.builder()
+                    .messages(pageContent.stream().map(HistoryEntry::message).toList())
+                    .nextCursor(nextCursor)
+                    .hasMore(hasMore)
+                    .syncCursor(syncCursor)
+                    .build();
+        }
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        KeysetCursor position = firstPage ? null : CursorUtil.decode(cursor);
+        List<Message> messages;
+        if (firstPage) {
+            messages = messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, limit);
+        } else {
+            messages = messageRepository.findByUserIdBeforeCursor(
+                    userId, position.getCreatedDate(), position.getRecordId(), limit);
+        }
+        if (messages.size() <= pageSize) {
+            messages = continueInArchive(userId, messages, position, pageSize + 1);
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        List<Message> pageContent = hasMore ? messages.subList(0, pageSize) : messages;
+        String nextCursor = null;
+        if (hasMore) {
+            Message last = pageContent.getLast();
+            nextCursor = CursorUtil.encode(last.getCreatedDate(), last.getRecordId());
+        }
+
+        String syncCursor = null;
+        if (firstPage && !pageContent.isEmpty()) {
+            Message newest = pageContent.getFirst();
+            syncCursor = CursorUtil.encode(newest.getCreatedDate(), newest.getRecordId());
+        }
+
+        return ChatHistoryResponseDto.builder()
+                .messages(pageContent.stream().map(MessageService::convertToResponseDto).toList())
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .syncCursor(syncCursor)
+                .build();
+    }
+
+    /**
+     * {@link #getMessagesByCursor} in the compact format: no paging metadata beyond the cursor, and epoch-millisecond
+     * timestamps. Creation times are stored in the server's zone, which is applied here.
+     */
+    @Transactional(readOnly = true)
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public MessagePageDto getCompactMessages(String userId, String cursor, int size) {
+        ChatHistoryResponseDto history = getMessagesByCursor(userId, cursor, size);
+        return MessagePageDto.builder()
+                .items(history.getMessages().stream().map(MessageService::convertToItemDto).toList())
+                .cursor(history.getNextCursor())
+                .syncCursor(history.getSyncCursor())
+                .build();
+    }
+
+    /**
+     * Messages newer than the client's sync cursor, oldest first, at most {@code limit} of them.
+     * A blank cursor syncs from the beginning of the history.
+     * <p>
+     * Positions are (creation time, record ID), which the write-behind buffer assigns in commit order, so a message
+     * committed after the cursor was taken always sorts after it.
+     */
+    @Transactional(readOnly = true)
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public MessageSyncResponseDto getMessagesSince(String userId, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, PaginationConstants.MAX_PAGE_SIZE);
+        // Fetch one extra row to learn whether more messages are waiting
+        Pageable page = PageRequest.of(0, pageSize + 1);
+
+        List<Message> messages;
+        if (cursor == null || cursor.isBlank()) {
+            messages = messageRepository.findByUserIdOrderByCreatedDateAscRecordIdAsc(userId, page);
+        } else {
+            KeysetCursor position = CursorUtil.decode(cursor);
+            messages = messageRepository.findByUserIdAfterCursor(
+                    userId, position.getCreatedDate(), position.getRecordId(), page);
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        List<Message> pageContent = hasMore ? messages.subList(0, pageSize) : messages;
+        String nextCursor = cursor;
+        if (!pageContent.isEmpty()) {
+            Message last = pageContent.getLast();
+            nextCursor = CursorUtil.encode(last.getCreatedDate(), last.getRecordId());
+        }
+
+        return MessageSyncResponseDto.builder()
+                .messages(pageContent.stream().map(MessageService::convertToResponseDto).toList())
+                .cursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Persist the user message and hand the query to the advice pipeline, returning before any advice exists.
+     * The AI message is written separately by a pipeline worker once generation finishes, and pushed to the user's
+     * open chat sockets.
+     * Not transactional on purpose: messages go through the write-behind buffer, which batches them with other
+     * requests' messages, and no DB connection is held while the model runs.
+     */
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public MessageAcceptedDto createMessages(String userId, MessageRequestDto requestDto) {
+        String messageId = advicePipeline.submit(
+                () -> saveUserMessage(userId, requestDto),
+                userId,
+                requestDto.getContent(),
+                aiAdvice -> saveAndReturnAiMessage(userId, aiAdvice));
+        return MessageAcceptedDto.builder()
+                .messageId(messageId)
+                .build();
     }
 
-    public MessageResponseDto createMessages(MessageRequestDto requestDto) {
-        String userId = getCurrentUserId(requestDto.getToken());
-        saveUserMessage(userId, requestDto);
-        String aiAdvice = getAiAdviceMessage(requestDto.getContent());
-        return saveAndReturnAiMessage(userId, aiAdvice);
+    /**
+     * Streaming variant of {@link #createMessages}. The emitter sends an "accepted" event with the user message ID,
+     * a "token" event per advice chunk as the model produces it, and a "done" event with the AI message once it is
+     * persisted. The AI message is persisted even if the client disconnects mid-stream.
+     */
+    @Timed(MetricsConstants.SERVICE_TIMER)
+    public SseEmitter streamMessages(String userId, MessageRequestDto requestDto) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        advicePipeline.submitStreaming(
+                () -> {
+                    String messageId = saveUserMessage(userId, requestDto);
+                    sendEvent(emitter, MessageConstants.STREAM_EVENT_ACCEPTED,
+                            MessageAcceptedDto.builder().messageId(messageId).build());
+                    return messageId;
+                },
+                userId,
+                requestDto.getContent(),
+                chunk -> sendEvent(emitter, MessageConstants.STREAM_EVENT_TOKEN, chunk),
+                aiAdvice -> {
+                    MessageResponseDto aiMessage = saveAndReturnAiMessage(userId, aiAdvice);
+                    sendEvent(emitter, MessageConstants.STREAM_EVENT_DONE, aiMessage);
+                    emitter.complete();
+                },
+                error -> {
+                    sendEvent(emitter, MessageConstants.STREAM_EVENT_ERROR, MessageConstants.ADVICE_FAILED);
+                    emitter.complete();
+                });
+        return emitter;
     }
 
-    private void saveUserMessage(String userId, MessageRequestDto requestDto) {
+    private void sendEvent(SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream timed out; generation and persistence carry on regardless
+            log.debug("Dropping {} event for closed stream", eventName, e);
+        }
+    }
+
+    private String saveUserMessage(String userId, MessageRequestDto requestDto) {
         Message message = Message.builder()
-                .messageId(generateMessageId())
                 .userId(userId)
                 .content(requestDto.getContent())
                 .sender(MessageConstants.SENDER_USER)
                 .createdBy(MessageConstants.SENDER_USER)
-                .createdDate(LocalDateTime.now())
                 .lastModifiedBy(MessageConstants.SENDER_USER)
-                .lastModifiedDate(LocalDateTime.now())
                 .recordVersion(DatabaseConstants.DEFAULT_RECORD_VERSION)
                 .build();
 
-        messageRepository.saveAndFlush(message);
+        write(message);
+        return message.getMessageId();
     }
 
     private MessageResponseDto saveAndReturnAiMessage(String userId, String content) {
         Message message = Message.builder()
-                .messageId(generateMessageId())
                 .userId(userId)
                 .content(content)
                 .sender(MessageConstants.SENDER_AI)
                 .createdBy(MessageConstants.SENDER_AI)
-                .createdDate(LocalDateTime.now())
                 .lastModifiedBy(MessageConstants.SENDER_AI)
-                .lastModifiedDate(LocalDateTime.now())
                 .recordVersion(DatabaseConstants.DEFAULT_RECORD_VERSION)
                 .build();
 
-        messageRepository.saveAndFlush(message);
-        return convertToResponseDto(message);
+        // Waits for the commit in either acknowledgement mode, since the reply carries the date the writer gives it
+        MessageResponseDto aiMessage = convertToResponseDto(write(message).join());
+        // Pushes the reply to the user's open chat sockets, whichever endpoint the question came in on
+        eventPublisher.publishEvent(new AiReplyEvent(userId, aiMessage));
+        return aiMessage;
     }
 
-    private MessageResponseDto convertToResponseDto(Message message) {
+    static MessageResponseDto convertToResponseDto(Message message) {
         return MessageResponseDto.builder()
                 .content(message.getContent())
                 .sender(message.getSender())
@@ -84,19 +316,47 @@ public class MessageService {
                 .build();
     }
 
-    private String getAiAdviceMessage(String query) {
-        //TODO: Implement AI advice retrieval logic
-        return MessageConstants.AI_ADVICE_PREFIX + query;
+    static MessageItemDto convertToItemDto(MessageResponseDto message) {
+        return MessageItemDto.builder()
+                .content(message.getContent())
+                .sender(message.getSender())
+                .createdAt(message.getCreatedDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                .build();
+    }
+
+    private CompletableFuture<Message> write(Message message) {
+        // The ID is assigned up front so it can be acknowledged before the row is written
+        message.setMessageId(UuidUtil.generateTimeOrderedUuid());
+        CompletableFuture<Message> written = messageWriteBuffer.write(message);
+        written.thenAccept(recentHistoryCache::append);
+        return written;
     }
 
-    private String generateMessageId() {
-        return UuidUtil.generateUniqueId(candidateId ->
-            messageRepository.findByMessageId(candidateId).isPresent()
-        );
+    /**
+     * Fill a keyset page the hot tier could not, from the archive. Every archived message is older than every hot one,
+     * so the archive continues right after the cursor, or from its newest message once hot rows were returned.
+     * @param position the page's cursor position, or null for the first page
+     */
+    private List<Message> continueInArchive(String userId, List<Message> hotMessages, KeysetCursor position,
+                                            int limit) {
+        Pageable remaining = PageRequest.of(0, limit - hotMessages.size());
+        List<MessageArchive> archived = position == null || !hotMessages.isEmpty()
+                ? messageArchiveRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, remaining)
+                : messageArchiveRepository.findByUserIdBeforeCursor(
+                        userId, position.getCreatedDate(), position.getRecordId(), remaining);
+        if (archived.isEmpty()) {
+            return hotMessages;
+        }
+        List<Message> combined = new ArrayList<>(hotMessages.size() + archived.size());
+        combined.addAll(hotMessages);
+        archived.forEach(message -> combined.add(message.toMessage()));
+        return combined;
     }
 
-    private String getCurrentUserId(String token) {
-        Claims claims = jwtUtil.decodeToken(token);
-        return (String) claims.get(JwtConstants.USER_ID_CLAIM);
+    // The cache holds the newest messages in the repository's default order, so only unsorted pages within it qualify
+    private boolean isServedByHistoryCache(Pageable pageable) {
+        return pageable.isPaged()
+                && pageable.getSort().isUnsorted()
+                && pageable.getOffset() + pageable.getPageSize() <= recentHistoryCache.getMessagesPerUser();
     }
 }
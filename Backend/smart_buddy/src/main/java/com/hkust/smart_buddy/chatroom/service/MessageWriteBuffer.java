@@ -0,0 +1,232 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.common.constants.DatabaseConstants;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import com.hkust.smart_buddy.common.util.UuidUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for chat messages. Messages from concurrent requests are queued and inserted by a single
+ * writer thread in batches of up to {@code flushSize}, once the batch is full or {@code flushIntervalMs} after its
+ * first message, whichever comes first.
+ * <p>
+ * Durability depends on the acknowledgement mode:
+ * <ul>
+ *   <li>{@link AckMode#DURABLE}: {@link #write} returns only after the batch holding the message has committed,
+ *       so an acknowledged message is on disk. Failures are thrown to the caller.</li>
+ *   <li>{@link AckMode#BUFFERED}: {@link #write} returns once the message is queued. Messages still queued when
+ *       the process dies are lost, at most {@code capacity} of them. A graceful shutdown flushes the queue first.
+ *       Failures are only logged.</li>
+ * </ul>
+ * When the queue is full, {@link #write} blocks until the writer catches up.
+ * <p>
+ * A message is dated when its batch is inserted, not when it is queued. Batches commit one after another from the
+ * writer thread and take ever higher record IDs, so ordering by (creation date, record ID) is commit order, and a sync
+ * cursor taken from committed rows never passes a message still to commit. That holds for the messages of one
+ * instance; two instances writing for the same user in the same second can still commit out of that order.
+ */
+@Slf4j
+@Component
+public class MessageWriteBuffer {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    public enum AckMode {
+        DURABLE, BUFFERED
+    }
+
+    private final MessageRepository messageRepository;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final AckMode ackMode;
+    private final BlockingQueue<PendingWrite> pending;
+    private final DistributionSummary batchSizes;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Only touched by the writer thread
+    private LocalDateTime lastStamp = LocalDateTime.MIN;
+
+    public MessageWriteBuffer(MessageRepository messageRepository,
+                              @Value("${message.write-behind.flush-size}") int flushSize,
+                              @Value("${message.write-behind.flush-interval-ms}") long flushIntervalMs,
+                              @Value("${message.write-behind.capacity}") int capacity,
+                              @Value("${message.write-behind.ack-mode}") AckMode ackMode,
+                              MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.ackMode = ackMode;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.batchSizes = DistributionSummary.builder(MetricsConstants.MESSAGE_WRITE_BATCH_SIZE)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConstants.MESSAGE_WRITE_QUEUED, pending, BlockingQueue::size)
+                .register(meterRegistry);
+        this.writer = Thread.ofPlatform().name("message-writer").daemon(true).start(this::drain);
+    }
+
+    /**
+     * Queue a new message for insertion and wait for it as the acknowledgement mode requires.
+     * The message ID must already be set; it is only replaced if it collides with an existing one.
+     * The creation and last-modified dates are set by the writer and are only final once the message is committed.
+     * @return completes with the message, now carrying its generated record ID and dates, once it is committed;
+     *         already complete on return in {@link AckMode#DURABLE} mode
+     */
+    public CompletableFuture<Message> write(Message message) {
+        if (!running) {
+            throw new IllegalStateException(MessageConstants.MESSAGE_WRITER_STOPPED);
+        }
+        PendingWrite write = new PendingWrite(message, new CompletableFuture<>());
+        try {
+            pending.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(MessageConstants.MESSAGE_WRITER_STOPPED, e);
+        }
+        if (ackMode == AckMode.DURABLE) {
+            try {
+                write.written().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return write.written();
+    }
+
+    private void drain() {
+        List<PendingWrite> batch = new ArrayList<>(flushSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                PendingWrite first = pending.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+            } catch (InterruptedException e) {
+                // Treated as a stop request; the flag stays cleared so the remaining queue can still be flushed
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Linger until the batch is full or the interval since its first message has passed
+    private void fill(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < flushSize) {
+            pending.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        stamp(batch);
+        try {
+            insert(batch.stream().map(PendingWrite::message).toList());
+            batchSizes.record(batch.size());
+            batch.forEach(write -> write.written().complete(write.message()));
+        } catch (RuntimeException e) {
+            // One bad row rolls back the whole batch; retry row by row so only that row fails
+            log.warn("Batched insert of {} messages failed, retrying one by one", batch.size(), e);
+            batch.forEach(this::flushOne);
+        }
+    }
+
+    /**
+     * Date the batch as of its insert, in whole seconds as the DATETIME columns store them. Never earlier than the
+     * previous batch, even if the clock steps back. Rows retried one by one keep the batch's date; they still commit
+     * after every earlier batch and take new, higher record IDs.
+     */
+    private void stamp(List<PendingWrite> batch) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        if (now.isAfter(lastStamp)) {
+            lastStamp = now;
+        }
+        batch.forEach(write -> {
+            write.message().setCreatedDate(lastStamp);
+            write.message().setLastModifiedDate(lastStamp);
+        });
+    }
+
+    private void flushOne(PendingWrite write) {
+        Message message = write.message();
+        try {
+            try {
+                insert(List.of(message));
+            } catch (DataIntegrityViolationException e) {
+                // A message ID collision is the only violation worth retrying
+                if (!UuidUtil.isViolationOf(e, DatabaseConstants.MESSAGE_ID_UNIQUE_INDEX)) {
+                    throw e;
+                }
+                UuidUtil.insertWithUniqueId(DatabaseConstants.MESSAGE_ID_UNIQUE_INDEX, messageId -> {
+                    message.setMessageId(messageId);
+                    insert(List.of(message));
+                    return message;
+                });
+            }
+            write.written().complete(message);
+        } catch (RuntimeException e) {
+            if (ackMode == AckMode.BUFFERED) {
+                log.error("Lost acknowledged message {} of user {}", message.getMessageId(), message.getUserId(), e);
+            }
+            write.written().completeExceptionally(e);
+        }
+    }
+
+    private void insert(List<Message> messages) {
+        try {
+            messageRepository.insertAll(messages);
+        } catch (RuntimeException e) {
+            // Keys assigned to the rolled back rows were never written; clear them so the rows can be persisted again
+            messages.forEach(message -> message.setRecordId(null));
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        List<PendingWrite> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Message writer stopped with {} messages unwritten", abandoned.size());
+            abandoned.forEach(write -> write.written().completeExceptionally(
+                    new IllegalStateException(MessageConstants.MESSAGE_WRITER_STOPPED)));
+        }
+    }
+
+    private record PendingWrite(Message message, CompletableFuture<Message> written) {
+    }
+}
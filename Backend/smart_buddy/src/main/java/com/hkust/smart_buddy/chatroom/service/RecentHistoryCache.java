@@ -0,0 +1,137 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Each user's newest {@code messagesPerUser} messages, newest first, plus their total message count.
+ * Loaded from the database on first read, from the archive too if the hot tier holds fewer messages,
+ * and kept current write-through as messages are committed.
+ * Users are evicted least-recently-used once the estimated size of all entries exceeds {@code maxBytes}.
+ */
+@Component
+public class RecentHistoryCache {
+    // Rough per-message overhead of the entry, DTO, date-times and list slot, on top of the content characters
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private static final Comparator<HistoryEntry> NEWEST_FIRST = Comparator
+            .comparing(HistoryEntry::createdDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(HistoryEntry::recordId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final MessageRepository messageRepository;
+    private final MessageArchiveRepository messageArchiveRepository;
+    private final int messagesPerUser;
+    private final LoadingCache<String, RecentHistory> cache;
+
+    public RecentHistoryCache(MessageRepository messageRepository,
+                              MessageArchiveRepository messageArchiveRepository,
+                              @Value("${message.history-cache.messages-per-user}") int messagesPerUser,
+                              @Value("${message.history-cache.max-bytes}") long maxBytes,
+                              MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.messageArchiveRepository = messageArchiveRepository;
+        this.messagesPerUser = messagesPerUser;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String userId, RecentHistory history) -> history.estimatedBytes())
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, MetricsConstants.MESSAGE_HISTORY_CACHE);
+        Gauge.builder(MetricsConstants.MESSAGE_HISTORY_CACHE_HIT_RATIO, cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+    }
+
+    public int getMessagesPerUser() {
+        return messagesPerUser;
+    }
+
+    public RecentHistory get(String userId) {
+        return cache.get(userId);
+    }
+
+    /**
+     * Add a committed message to its user's cached history, if that user is cached.
+     * Safe to call for a message the cache already loaded from the database.
+     */
+    public void append(Message message) {
+        // Blocks behind an in-flight load of the same user, so a message committed mid-load is not lost
+        cache.asMap().computeIfPresent(message.getUserId(),
+                (userId, history) -> history.with(HistoryEntry.of(message), messagesPerUser));
+    }
+
+    private RecentHistory load(String userId) {
+        List<HistoryEntry> newest = new ArrayList<>(messagesPerUser);
+        messageRepository
+                .findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, PageRequest.of(0, messagesPerUser))
+                .forEach(message -> newest.add(HistoryEntry.of(message)));
+        int hotMessages = newest.size();
+        if (hotMessages == messagesPerUser) {
+            long totalMessages = messageRepository.countByUserId(userId)
+                    + messageArchiveRepository.countByUserId(userId);
+            return new RecentHistory(List.copyOf(newest), totalMessages);
+        }
+        // The hot tier ran out, so the rest of the window comes from the archive, whose messages are all older
+        int remaining = messagesPerUser - hotMessages;
+        List<MessageArchive> archived = messageArchiveRepository
+                .findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, PageRequest.of(0, remaining));
+        archived.forEach(message -> newest.add(HistoryEntry.of(message.toMessage())));
+        // Fewer rows than asked for means that is every message, so no COUNT is needed
+        long totalMessages = archived.size() < remaining
+                ? newest.size()
+                : hotMessages + messageArchiveRepository.countByUserId(userId);
+        return new RecentHistory(List.copyOf(newest), totalMessages);
+    }
+
+    public record HistoryEntry(Long recordId, LocalDateTime createdDate, MessageResponseDto message) {
+        static HistoryEntry of(Message message) {
+            return new HistoryEntry(message.getRecordId(), message.getCreatedDate(),
+                    MessageService.convertToResponseDto(message));
+        }
+    }
+
+    /**
+     * @param entries newest first, at most messagesPerUser of them
+     * @param totalMessages all of the user's messages, including those not in {@code entries}
+     */
+    public record RecentHistory(List<HistoryEntry> entries, long totalMessages) {
+
+        RecentHistory with(HistoryEntry entry, int limit) {
+            if (entries.stream().anyMatch(existing -> Objects.equals(existing.recordId(), entry.recordId()))) {
+                return this;
+            }
+            List<HistoryEntry> updated = new ArrayList<>(entries.size() + 1);
+            updated.addAll(entries);
+            updated.add(entry);
+            updated.sort(NEWEST_FIRST);
+            return new RecentHistory(List.copyOf(updated.subList(0, Math.min(updated.size(), limit))),
+                    totalMessages + 1);
+        }
+
+        int estimatedBytes() {
+            int bytes = 0;
+            for (HistoryEntry entry : entries) {
+                String content = entry.message().getContent();
+                bytes += ENTRY_OVERHEAD_BYTES + (content == null ? 0 : content.length() * 2);
+            }
+            return bytes;
+        }
+    }
+}
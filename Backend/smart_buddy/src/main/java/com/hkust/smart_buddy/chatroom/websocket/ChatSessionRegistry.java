@@ -0,0 +1,99 @@
+package com.hkust.smart_buddy.chatroom.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.dto.ChatSocketFrameDto;
+import com.hkust.smart_buddy.chatroom.event.AiReplyEvent;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Open chat sockets by user ID, so an AI reply reaches every device the user is connected from,
+ * whichever endpoint the question came in on.
+ * <p>
+ * Almost every user has one socket, so each user maps to a small immutable list that is replaced on change
+ * rather than to a concurrent set, which would cost a couple of hundred bytes per idle connection.
+ */
+@Slf4j
+@Component
+public class ChatSessionRegistry {
+    private final Map<String, List<WebSocketSession>> sessionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final ObjectMapper objectMapper;
+    private final Counter overflows;
+
+    public ChatSessionRegistry(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.overflows = Counter.builder(MetricsConstants.CHAT_SOCKET_OVERFLOWS)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConstants.CHAT_SOCKET_SESSIONS, openSessions, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    public void register(String userId, WebSocketSession session) {
+        sessionsByUser.merge(userId, List.of(session),
+                (sessions, added) -> Stream.concat(sessions.stream(), added.stream()).toList());
+        openSessions.incrementAndGet();
+    }
+
+    public void unregister(String userId, WebSocketSession session) {
+        sessionsByUser.computeIfPresent(userId, (key, sessions) -> {
+            List<WebSocketSession> remaining = sessions.stream().filter(open -> open != session).toList();
+            return remaining.isEmpty() ? null : remaining;
+        });
+        openSessions.decrementAndGet();
+    }
+
+    @EventListener
+    public void onAiReply(AiReplyEvent event) {
+        List<WebSocketSession> sessions = sessionsByUser.get(event.userId());
+        if (sessions == null) {
+            return;
+        }
+        TextMessage frame = frame(MessageConstants.SOCKET_FRAME_REPLY, event.message());
+        sessions.forEach(session -> send(session, frame));
+    }
+
+    /**
+     * Queue a frame on a session's outbound buffer. Never throws: a client that cannot keep up is disconnected and
+     * catches up through {@code /messages/since} after reconnecting.
+     */
+    public void send(WebSocketSession session, TextMessage frame) {
+        try {
+            session.sendMessage(frame);
+        } catch (SessionLimitExceededException e) {
+            overflows.increment();
+            log.debug("Closed chat socket {} that fell behind: {}", session.getId(), e.getMessage());
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping frame for closed chat socket {}", session.getId(), e);
+        }
+    }
+
+    public TextMessage frame(String type, Object data) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(ChatSocketFrameDto.builder()
+                    .type(type)
+                    .data(data)
+                    .build()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
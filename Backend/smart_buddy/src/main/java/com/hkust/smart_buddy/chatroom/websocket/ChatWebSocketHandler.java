@@ -0,0 +1,180 @@
+package com.hkust.smart_buddy.chatroom.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.dto.MessageAcceptedDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageRequestDto;
+import com.hkust.smart_buddy.chatroom.exception.AdviceQueueFullException;
+import com.hkust.smart_buddy.chatroom.service.MessageService;
+import com.hkust.smart_buddy.common.security.AuthenticatedUser;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.NativeWebSocketSession;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Chat over a WebSocket at {@code /smart_buddy/chatroom/ws}. The handshake is authenticated by the JWT filter like any
+ * other chat request. The client sends {@link MessageRequestDto} JSON; the server answers each with an "accepted"
+ * frame and later pushes the AI advice as a "reply" frame.
+ * <p>
+ * Outbound frames go through a {@link ConcurrentWebSocketSessionDecorator} per connection, so a slow client queues at
+ * most {@code sendBufferLimitBytes} and is disconnected when it falls further behind or stalls a send for longer
+ * than {@code sendTimeLimitMs}, instead of holding memory or a pipeline worker.
+ */
+@Slf4j
+@Component
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+    private static final String OUTBOUND_SESSION = "chat.outbound";
+    private static final String PARTIAL_MESSAGE = "chat.partial";
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    // A JSON string may spell any character as a six-character unicode escape
+    private static final int MAX_ESCAPED_CHARS_PER_CHAR = 6;
+
+    private final MessageService messageService;
+    private final ChatSessionRegistry sessionRegistry;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int sendTimeLimitMs;
+    private final int sendBufferLimitBytes;
+    private final int maxMessageChars;
+
+    public ChatWebSocketHandler(MessageService messageService,
+                                ChatSessionRegistry sessionRegistry,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                @Value("${websocket.chat.send-time-limit-ms}") int sendTimeLimitMs,
+                                @Value("${websocket.chat.send-buffer-limit-bytes}") int sendBufferLimitBytes,
+                                @Value("${websocket.chat.max-envelope-chars}") int maxEnvelopeChars) {
+        this.messageService = messageService;
+        this.sessionRegistry = sessionRegistry;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferLimitBytes = sendBufferLimitBytes;
+        // Room for the longest valid content with every character escaped, plus the JSON around it
+        this.maxMessageChars = MessageConstants.MAX_CONTENT_CHARS * MAX_ESCAPED_CHARS_PER_CHAR + maxEnvelopeChars;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Tomcat would otherwise block the thread flushing to a stalled client for up to 20 seconds
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            jakarta.websocket.Session container = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+            if (container != null) {
+                container.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, (long) sendTimeLimitMs);
+            }
+        }
+        WebSocketSession outbound = new ConcurrentWebSocketSessionDecorator(
+                session, sendTimeLimitMs, sendBufferLimitBytes);
+        session.getAttributes().put(OUTBOUND_SESSION, outbound);
+        sessionRegistry.register(userOf(session).userId(), outbound);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        String payload = assemble(session, message);
+        if (payload == null) {
+            return;
+        }
+        WebSocketSession outbound = outboundOf(session);
+
+        MessageRequestDto request = parse(payload);
+        if (request == null) {
+            sessionRegistry.send(outbound, sessionRegistry.frame(
+                    MessageConstants.SOCKET_FRAME_ERROR, MessageConstants.INVALID_SOCKET_MESSAGE));
+            return;
+        }
+        Set<ConstraintViolation<MessageRequestDto>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            sessionRegistry.send(outbound, sessionRegistry.frame(
+                    MessageConstants.SOCKET_FRAME_ERROR, violations.iterator().next().getMessage()));
+            return;
+        }
+
+        try {
+            MessageAcceptedDto accepted = messageService.createMessages(userOf(session).userId(), request);
+            sessionRegistry.send(outbound, sessionRegistry.frame(MessageConstants.SOCKET_FRAME_ACCEPTED, accepted));
+        } catch (AdviceQueueFullException e) {
+            sessionRegistry.send(outbound, sessionRegistry.frame(MessageConstants.SOCKET_FRAME_ERROR, e.getMessage()));
+        } catch (RuntimeException e) {
+            // Thrown out of here, it would make the container close the socket over one failed message
+            log.error("Chat socket {} could not create a message", session.getId(), e);
+            sessionRegistry.send(outbound, sessionRegistry.frame(
+                    MessageConstants.SOCKET_FRAME_ERROR, MessageConstants.SOCKET_MESSAGE_FAILED));
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Chat socket {} failed", session.getId(), exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        WebSocketSession outbound = outboundOf(session);
+        if (outbound != null) {
+            sessionRegistry.unregister(userOf(session).userId(), outbound);
+        }
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        return true;
+    }
+
+    /**
+     * The container reads frames through a small buffer to keep idle connections cheap, so a long message
+     * arrives in parts. They are collected here, only while a message is incomplete.
+     * @return the whole message, or null while more parts are due or after closing an oversized message
+     */
+    private String assemble(WebSocketSession session, TextMessage message) throws IOException {
+        StringBuilder partial = (StringBuilder) session.getAttributes().get(PARTIAL_MESSAGE);
+        if (partial == null && message.isLast() && message.getPayloadLength() <= maxMessageChars) {
+            return message.getPayload();
+        }
+        if (partial == null) {
+            partial = new StringBuilder();
+            session.getAttributes().put(PARTIAL_MESSAGE, partial);
+        }
+        partial.append(message.getPayload());
+        if (partial.length() > maxMessageChars) {
+            session.getAttributes().remove(PARTIAL_MESSAGE);
+            session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            return null;
+        }
+        if (!message.isLast()) {
+            return null;
+        }
+        session.getAttributes().remove(PARTIAL_MESSAGE);
+        return partial.toString();
+    }
+
+    private MessageRequestDto parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, MessageRequestDto.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static WebSocketSession outboundOf(WebSocketSession session) {
+        return (WebSocketSession) session.getAttributes().get(OUTBOUND_SESSION);
+    }
+
+    // The handshake request's principal is the Authentication the JWT filter put in the security context
+    private static AuthenticatedUser userOf(WebSocketSession session) {
+        return (AuthenticatedUser) ((Authentication) session.getPrincipal()).getPrincipal();
+    }
+}
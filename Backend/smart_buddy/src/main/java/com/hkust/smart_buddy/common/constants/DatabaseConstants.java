@@ -27,9 +27,33 @@ public class DatabaseConstants {
     public static final String CONTENT = "CONTENT";
     public static final String SENDER = "SENDER";
 
+    // Message archive table columns
+    public static final String ARCHIVED_DT = "ARCHIVED_DT";
+
+    // User table indexes; MySQL names an inline UNIQUE key after its column
+    public static final String USER_ID_UNIQUE_INDEX = "USERID";
+
+    // Message table indexes
+    public static final String MESSAGE_ID_UNIQUE_INDEX = "UK_MESSAGE_MESSAGEID";
+    public static final String MESSAGE_USER_HISTORY_INDEX = "IDX_MESSAGE_USERID_CREATED_DT";
+    public static final String MESSAGE_CREATED_DT_INDEX = "IDX_MESSAGE_CREATED_DT";
+    public static final String MESSAGE_ARCHIVE_ID_UNIQUE_INDEX = "UK_MESSAGE_ARCHIVE_MESSAGEID";
+    public static final String MESSAGE_ARCHIVE_USER_HISTORY_INDEX = "IDX_MESSAGE_ARCHIVE_USERID_CREATED_DT";
+
+    // Pooled ID generator table, one row per generated key
+    public static final String ID_GENERATOR_TABLE = "ID_GENERATOR";
+    public static final String ID_GENERATOR_NAME = "SEQUENCE_NAME";
+    public static final String ID_GENERATOR_NEXT_VAL = "NEXT_VAL";
+    public static final String MESSAGE_ID_GENERATOR = "messageIdGenerator";
+    public static final int MESSAGE_ID_ALLOCATION_SIZE = 50;
+
     // Table names
-    public static final String USER_TABLE = "user";
+    public static final String USER_TABLE = "USER";
     public static final String MESSAGE_TABLE = "MESSAGE";
+    public static final String MESSAGE_ARCHIVE_TABLE = "MESSAGE_ARCHIVE";
+
+    // Error messages
+    public static final String DATABASE_BUSY = "Database is busy, please retry shortly";
 
     // Default values
     public static final String DEFAULT_CREATED_BY = "Admin";
@@ -11,7 +11,11 @@ public class JwtConstants {
     // JWT Claims
     public static final String USER_ID_CLAIM = "userId";
 
+    // Authorization header scheme, including the separating space
+    public static final String BEARER_PREFIX = "Bearer ";
+
     // JWT Error Messages
+    public static final String TOKEN_REQUIRED = "JWT bearer token is required";
     public static final String TOKEN_NULL_OR_EMPTY = "JWT token cannot be null or empty";
     public static final String TOKEN_EXPIRED = "JWT token has expired";
     public static final String TOKEN_SIGNATURE_INVALID = "JWT token signature is invalid";
@@ -19,4 +23,13 @@ public class JwtConstants {
     public static final String TOKEN_UNSUPPORTED = "JWT token is unsupported";
     public static final String TOKEN_INVALID = "JWT token is invalid";
     public static final String TOKEN_PROCESSING_FAILED = "JWT token processing failed: ";
+
+    // Decode failure reasons, used as the reason tag of the decode failure counter
+    public static final String REASON_NULL_OR_EMPTY = "null_or_empty";
+    public static final String REASON_EXPIRED = "expired";
+    public static final String REASON_SIGNATURE_INVALID = "signature_invalid";
+    public static final String REASON_MALFORMED = "malformed";
+    public static final String REASON_UNSUPPORTED = "unsupported";
+    public static final String REASON_INVALID = "invalid";
+    public static final String REASON_PROCESSING_FAILED = "processing_failed";
 }
@@ -0,0 +1,72 @@
+package com.hkust.smart_buddy.common.constants;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Meter names and tags. Every meter starts with "smart_buddy" so histograms can be enabled for all of them at once.
+ */
+@UtilityClass
+public class MetricsConstants {
+
+    // Meter names
+    public static final String SERVICE_TIMER = "smart_buddy.service";
+    public static final String PASSWORD_ENCODER_TIMER = "smart_buddy.password.encoder";
+    public static final String PASSWORD_HASHING_QUEUED = "smart_buddy.password.hashing.queued";
+    public static final String PASSWORD_HASHING_REJECTIONS = "smart_buddy.password.hashing.rejections";
+    public static final String PASSWORD_REHASHES = "smart_buddy.password.rehashes";
+    public static final String JWT_VERIFY_TIMER = "smart_buddy.jwt.verify";
+    public static final String JWT_DECODE_FAILURES = "smart_buddy.jwt.decode.failures";
+    public static final String JWT_VERIFIED_TOKEN_CACHE = "smart_buddy.jwt.verified_tokens";
+    public static final String DB_QUERIES_PER_REQUEST = "smart_buddy.db.queries";
+    public static final String UUID_INSERT_RETRIES = "smart_buddy.uuid.insert.retries";
+    public static final String ADVICE_GENERATION_TIMER = "smart_buddy.advice.generation";
+    public static final String ADVICE_QUEUE_WAIT_TIMER = "smart_buddy.advice.queue.wait";
+    public static final String ADVICE_REJECTIONS = "smart_buddy.advice.rejections";
+    public static final String ADVICE_FALLBACKS = "smart_buddy.advice.fallbacks";
+    public static final String ADVICE_RETRIES = "smart_buddy.advice.retries";
+    public static final String ADVICE_CIRCUIT_OPEN = "smart_buddy.advice.circuit.open";
+    public static final String ADVICE_CACHE_LOOKUPS = "smart_buddy.advice.cache.lookups";
+    public static final String ADVICE_CACHE_SIZE = "smart_buddy.advice.cache.size";
+    public static final String ADVICE_COALESCED = "smart_buddy.advice.coalesced";
+    public static final String ADVICE_COALESCING_RATIO = "smart_buddy.advice.coalescing_ratio";
+    public static final String MESSAGE_WRITE_BATCH_SIZE = "smart_buddy.message.write.batch.size";
+    public static final String MESSAGE_WRITE_QUEUED = "smart_buddy.message.write.queued";
+    public static final String MESSAGE_ARCHIVED = "smart_buddy.message.archived";
+    public static final String MESSAGE_ARCHIVE_BATCH_TIMER = "smart_buddy.message.archive.batch";
+    public static final String CHAT_SOCKET_SESSIONS = "smart_buddy.chat.socket.sessions";
+    public static final String CHAT_SOCKET_OVERFLOWS = "smart_buddy.chat.socket.overflows";
+    public static final String MESSAGE_HISTORY_CACHE = "smart_buddy.message.recent_history";
+    public static final String MESSAGE_HISTORY_CACHE_HIT_RATIO = "smart_buddy.message.recent_history.hit_ratio";
+    public static final String USER_CACHE_BY_USERNAME = "smart_buddy.user.by_username";
+    public static final String USER_CACHE_BY_USER_ID = "smart_buddy.user.by_user_id";
+    public static final String USERNAME_FILTER_SKIPPED_LOOKUPS = "smart_buddy.user.username_filter.skipped_lookups";
+    public static final String USERNAME_FILTER_BYTES = "smart_buddy.user.username_filter.bytes";
+    public static final String USERNAME_FILTER_FALSE_POSITIVE_RATE = "smart_buddy.user.username_filter.false_positive_rate";
+
+    // Tag keys
+    public static final String TAG_REASON = "reason";
+    public static final String TAG_OPERATION = "operation";
+    public static final String TAG_MODE = "mode";
+    public static final String TAG_OUTCOME = "outcome";
+    public static final String TAG_METHOD = "method";
+    public static final String TAG_URI = "uri";
+    public static final String TAG_RESULT = "result";
+
+    // Tag values
+    public static final String OPERATION_ENCODE = "encode";
+    public static final String OPERATION_MATCHES = "matches";
+    public static final String MODE_BLOCKING = "blocking";
+    public static final String MODE_STREAMING = "streaming";
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+    public static final String URI_UNKNOWN = "UNKNOWN";
+    public static final String REASON_QUEUE_FULL = "queue_full";
+    public static final String REASON_PER_KEY_LIMIT = "per_key_limit";
+    public static final String REASON_TIMEOUT = "timeout";
+    public static final String REASON_ERROR = "error";
+    public static final String REASON_BULKHEAD_FULL = "bulkhead_full";
+    public static final String REASON_CIRCUIT_OPEN = "circuit_open";
+    public static final String RESULT_HIT = "hit";
+    public static final String RESULT_SIMILAR_HIT = "similar_hit";
+    public static final String RESULT_MISS = "miss";
+}
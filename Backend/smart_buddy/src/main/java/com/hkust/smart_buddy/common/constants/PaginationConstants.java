@@ -0,0 +1,20 @@
+package com.hkust.smart_buddy.common.constants;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Keyset (cursor) pagination related constants and error messages
+ */
+@UtilityClass
+public class PaginationConstants {
+
+    // Page size limits
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Cursor encoding
+    public static final String CURSOR_SEPARATOR = "|";
+
+    // Cursor Error Messages
+    public static final String CURSOR_INVALID = "Pagination cursor is invalid";
+}
@@ -25,11 +25,6 @@ public class AbstractEntity implements Serializable {
     @Serial
     private static final long serialVersionUID = 202507051234567890L;
 
-    @Id
-    @Column(name = DatabaseConstants.RECORD_ID, nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long recordId;
-
     @CreatedBy
     @Size(max = 50)
     @Column(name = DatabaseConstants.CREATED_BY, length = 50)
@@ -0,0 +1,16 @@
+package com.hkust.smart_buddy.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position of the last row of a page, ordered by (CREATED_DT, RECORD_ID)
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+    private LocalDateTime createdDate;
+    private Long recordId;
+}
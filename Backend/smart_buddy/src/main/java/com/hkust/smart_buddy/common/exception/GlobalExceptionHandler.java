@@ -6,9 +6,15 @@ import com.hkust.smart_buddy.auth.exception.WrongPasswordException;
 import com.hkust.smart_buddy.auth.exception.PasswordMismatchException;
 import com.hkust.smart_buddy.auth.exception.InvalidEmailException;
 import com.hkust.smart_buddy.auth.exception.UsernameExistsException;
+import com.hkust.smart_buddy.auth.exception.LoginThrottledException;
+import com.hkust.smart_buddy.auth.exception.PasswordHashingBusyException;
+import com.hkust.smart_buddy.chatroom.exception.AdviceQueueFullException;
+import com.hkust.smart_buddy.common.constants.DatabaseConstants;
 import com.hkust.smart_buddy.common.dto.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -95,4 +101,62 @@ public class GlobalExceptionHandler {
                 .build();
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiResponse<Object>> handleInvalidCursor(InvalidCursorException ex) {
+        ApiResponse<Object> response = ApiResponse.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .data(null)
+                .build();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(AdviceQueueFullException.class)
+    public ResponseEntity<ApiResponse<Object>> handleAdviceQueueFull(AdviceQueueFullException ex) {
+        ApiResponse<Object> response = ApiResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message(ex.getMessage())
+                .data(null)
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<ApiResponse<Object>> handleLoginThrottled(LoginThrottledException ex) {
+        ApiResponse<Object> response = ApiResponse.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message(ex.getMessage())
+                .data(null)
+                .build();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ApiResponse<Object>> handlePasswordHashingBusy(PasswordHashingBusyException ex) {
+        ApiResponse<Object> response = ApiResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message(ex.getMessage())
+                .data(null)
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<ApiResponse<Object>> handleConnectionPoolExhausted(CannotCreateTransactionException ex) {
+        ApiResponse<Object> response = ApiResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message(DatabaseConstants.DATABASE_BUSY)
+                .data(null)
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
 }
@@ -0,0 +1,30 @@
+package com.hkust.smart_buddy.common.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a request is being counted.
+ * Statements issued outside {@link #begin()}/{@link #end()}, such as by advice workers, are not counted.
+ */
+public class QueryCountInspector implements StatementInspector {
+    private static final ThreadLocal<int[]> REQUEST_QUERY_COUNT = new ThreadLocal<>();
+
+    static void begin() {
+        REQUEST_QUERY_COUNT.set(new int[1]);
+    }
+
+    static int end() {
+        int[] count = REQUEST_QUERY_COUNT.get();
+        REQUEST_QUERY_COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = REQUEST_QUERY_COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
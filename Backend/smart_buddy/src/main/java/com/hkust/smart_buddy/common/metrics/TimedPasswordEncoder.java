@@ -0,0 +1,40 @@
+package com.hkust.smart_buddy.common.metrics;
+
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Times the wrapped encoder so BCrypt cost can be told apart from the rest of login and registration
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.encodeTimer = Timer.builder(MetricsConstants.PASSWORD_ENCODER_TIMER)
+                .tag(MetricsConstants.TAG_OPERATION, MetricsConstants.OPERATION_ENCODE)
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder(MetricsConstants.PASSWORD_ENCODER_TIMER)
+                .tag(MetricsConstants.TAG_OPERATION, MetricsConstants.OPERATION_MATCHES)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return Boolean.TRUE.equals(matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,44 @@
+package com.hkust.smart_buddy.common.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.dto.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Answers unauthenticated requests with the same 401 {@link ApiResponse} body the controllers use for errors
+ */
+@Component
+@RequiredArgsConstructor
+public class ApiAuthenticationEntryPoint implements AuthenticationEntryPoint {
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException {
+        // A bad token carries its decode failure; anything else means no token was sent
+        String message = authException instanceof BadCredentialsException
+                ? authException.getMessage()
+                : JwtConstants.TOKEN_REQUIRED;
+        ApiResponse<Object> body = ApiResponse.builder()
+                .status(HttpStatus.UNAUTHORIZED.value())
+                .message(message)
+                .data(null)
+                .build();
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, JwtConstants.BEARER_PREFIX.trim());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,7 @@
+package com.hkust.smart_buddy.common.security;
+
+/**
+ * Principal of a request authenticated by a JWT bearer token, read with {@code @AuthenticationPrincipal}
+ */
+public record AuthenticatedUser(String userId, String username) {
+}
@@ -0,0 +1,60 @@
+package com.hkust.smart_buddy.common.security;
+
+import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.exception.InvalidJwtTokenException;
+import com.hkust.smart_buddy.common.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates requests carrying an {@code Authorization: Bearer <jwt>} header. The token is decoded once and
+ * the resulting {@link AuthenticatedUser} is put in the security context. Requests without the header pass through
+ * unauthenticated and are turned away by the authorization rules if the route needs a user; requests with an
+ * invalid token are rejected here.
+ */
+@RequiredArgsConstructor
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private final JwtUtil jwtUtil;
+    private final AuthenticationEntryPoint authenticationEntryPoint;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, JwtConstants.BEARER_PREFIX, 0, JwtConstants.BEARER_PREFIX.length())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.decodeToken(header.substring(JwtConstants.BEARER_PREFIX.length()).trim());
+        } catch (InvalidJwtTokenException e) {
+            SecurityContextHolder.clearContext();
+            authenticationEntryPoint.commence(request, response, new BadCredentialsException(e.getMessage(), e));
+            return;
+        }
+
+        AuthenticatedUser user = new AuthenticatedUser(
+                claims.get(JwtConstants.USER_ID_CLAIM, String.class), claims.getSubject());
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                user, null, AuthorityUtils.NO_AUTHORITIES));
+        SecurityContextHolder.setContext(context);
+        filterChain.doFilter(request, response);
+    }
+}
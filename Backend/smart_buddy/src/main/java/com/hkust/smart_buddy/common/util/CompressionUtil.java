@@ -0,0 +1,69 @@
+package com.hkust.smart_buddy.common.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+@UtilityClass
+public class CompressionUtil {
+    private static final int CHUNK_BYTES = 4096;
+
+    /**
+     * Compress text as zlib-wrapped DEFLATE of its UTF-8 bytes
+     * @param text text to compress, or null
+     * @return the compressed bytes, or null for null text
+     */
+    public static byte[] deflate(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] chunk = new byte[CHUNK_BYTES];
+            while (!deflater.finished()) {
+                output.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reverse {@link #deflate(String)}
+     * @param compressed bytes produced by {@link #deflate(String)}, or null
+     * @return the original text, or null for null bytes
+     * @throws IllegalArgumentException if the bytes are not valid compressed data
+     */
+    public static String inflate(byte[] compressed) {
+        if (compressed == null) {
+            return null;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] chunk = new byte[CHUNK_BYTES];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Compressed data is truncated");
+                }
+                output.write(chunk, 0, inflated);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compressed data is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
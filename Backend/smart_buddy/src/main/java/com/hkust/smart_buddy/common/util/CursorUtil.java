@@ -0,0 +1,47 @@
+package com.hkust.smart_buddy.common.util;
+
+import com.hkust.smart_buddy.common.constants.PaginationConstants;
+import com.hkust.smart_buddy.common.dto.KeysetCursor;
+import com.hkust.smart_buddy.common.exception.InvalidCursorException;
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+@UtilityClass
+public class CursorUtil {
+
+    /**
+     * Encode a (CREATED_DT, RECORD_ID) position into an opaque, URL-safe cursor
+     * @param createdDate created date of the last row on the page
+     * @param recordId record ID of the last row on the page
+     * @return Base64url cursor string
+     */
+    public static String encode(LocalDateTime createdDate, Long recordId) {
+        String raw = createdDate + PaginationConstants.CURSOR_SEPARATOR + recordId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode(LocalDateTime, Long)}
+     * @param cursor opaque cursor string
+     * @return the decoded position
+     * @throws InvalidCursorException if the cursor was not produced by this class
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(PaginationConstants.CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException(PaginationConstants.CURSOR_INVALID);
+            }
+            LocalDateTime createdDate = LocalDateTime.parse(raw.substring(0, separator));
+            Long recordId = Long.valueOf(raw.substring(separator + 1));
+            return new KeysetCursor(createdDate, recordId);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidCursorException(PaginationConstants.CURSOR_INVALID, e);
+        }
+    }
+}
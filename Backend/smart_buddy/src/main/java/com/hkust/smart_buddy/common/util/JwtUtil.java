@@ -1,65 +1,144 @@
 package com.hkust.smart_buddy.common.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
 import com.hkust.smart_buddy.common.exception.InvalidJwtTokenException;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
-    @Value("${jwt.secret}")
-    private String secret;
+    private final long expiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final MeterRegistry meterRegistry;
+    private final Timer verifyTimer;
 
-    @Value("${jwt.expiration}")
-    private long expiration;
+    // Token -> claims of tokens whose signature has already been verified, dropped at the token's exp
+    private final Cache<String, Claims> verifiedTokenCache;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long expiration,
+                   @Value("${jwt.cache.max-size}") long cacheMaxSize,
+                   MeterRegistry meterRegistry) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokenCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.meterRegistry = meterRegistry;
+        // Only cache misses reach signature verification, so this times the crypto alone
+        this.verifyTimer = Timer.builder(MetricsConstants.JWT_VERIFY_TIMER)
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokenCache, MetricsConstants.JWT_VERIFIED_TOKEN_CACHE);
+    }
 
     public String generateToken(String username, String userId) {
-        Key key = Keys.hmacShaKeyFor(secret.getBytes());
         return Jwts.builder()
                 .setSubject(username)
                 .claim(JwtConstants.USER_ID_CLAIM, userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Decode a token, verifying its signature only the first time it is seen.
+     * Invalid tokens are never cached, so they fail the same way on every call.
+     */
     public Claims decodeToken(String token) {
         if (token == null || token.trim().isEmpty()) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_NULL_OR_EMPTY);
+            throw failure(JwtConstants.REASON_NULL_OR_EMPTY, JwtConstants.TOKEN_NULL_OR_EMPTY, null);
         }
+        return verifiedTokenCache.get(token, this::verifyToken);
+    }
 
+    /**
+     * Hit/miss/eviction counters of the verified-token cache, for sizing jwt.cache.max-size
+     */
+    public CacheStats getVerifiedTokenCacheStats() {
+        return verifiedTokenCache.stats();
+    }
+
+    private Claims verifyToken(String token) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            Key key = Keys.hmacShaKeyFor(secret.getBytes());
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_EXPIRED, e);
+            throw failure(JwtConstants.REASON_EXPIRED, JwtConstants.TOKEN_EXPIRED, e);
         } catch (SignatureException e) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_SIGNATURE_INVALID, e);
+            throw failure(JwtConstants.REASON_SIGNATURE_INVALID, JwtConstants.TOKEN_SIGNATURE_INVALID, e);
         } catch (MalformedJwtException e) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_MALFORMED, e);
+            throw failure(JwtConstants.REASON_MALFORMED, JwtConstants.TOKEN_MALFORMED, e);
         } catch (UnsupportedJwtException e) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_UNSUPPORTED, e);
+            throw failure(JwtConstants.REASON_UNSUPPORTED, JwtConstants.TOKEN_UNSUPPORTED, e);
         } catch (IllegalArgumentException e) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_INVALID, e);
+            throw failure(JwtConstants.REASON_INVALID, JwtConstants.TOKEN_INVALID, e);
         } catch (JwtException e) {
-            throw new InvalidJwtTokenException(JwtConstants.TOKEN_PROCESSING_FAILED + e.getMessage(), e);
+            throw failure(JwtConstants.REASON_PROCESSING_FAILED, JwtConstants.TOKEN_PROCESSING_FAILED + e.getMessage(), e);
+        } finally {
+            sample.stop(verifyTimer);
+        }
+    }
+
+    private InvalidJwtTokenException failure(String reason, String message, Exception cause) {
+        Counter.builder(MetricsConstants.JWT_DECODE_FAILURES)
+                .tag(MetricsConstants.TAG_REASON, reason)
+                .register(meterRegistry)
+                .increment();
+        return cause == null ? new InvalidJwtTokenException(message) : new InvalidJwtTokenException(message, cause);
+    }
+
+    /**
+     * Keeps each cached entry only until the token's own exp claim
+     */
+    private static final class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            Date expiresAt = claims.getExpiration();
+            if (expiresAt == null) {
+                return Long.MAX_VALUE;
+            }
+            long remainingMillis = expiresAt.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
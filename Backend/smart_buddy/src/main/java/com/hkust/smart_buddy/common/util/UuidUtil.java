@@ -1,13 +1,29 @@
 package com.hkust.smart_buddy.common.util;
 
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.Metrics;
 import lombok.experimental.UtilityClass;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.UUID;
-import java.util.function.Predicate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @UtilityClass
 public class UuidUtil {
-    
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_RFC_9562 = 0x8000000000000000L;
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    // Last issued (epoch millis << 12 | sequence), shared so IDs from this JVM never repeat or go backwards
+    private static final AtomicLong LAST_TIMESTAMP_AND_SEQUENCE = new AtomicLong();
+
     /**
      * Generate a random UUID string
      * @return UUID string in format: xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
@@ -15,18 +31,69 @@ public class UuidUtil {
     public static String generateUuid() {
         return UUID.randomUUID().toString();
     }
-    
+
+    /**
+     * Generate a time-ordered UUIDv7 (RFC 9562) without any database round trip.
+     * The first 48 bits are the Unix epoch milliseconds and the next 12 bits are a per-JVM sequence,
+     * so IDs from one node are strictly increasing and insert at the right edge of the B-tree.
+     * The remaining 62 bits are random, which keeps IDs from different nodes apart.
+     * @return UUID string in format: xxxxxxxx-xxxx-7xxx-xxxx-xxxxxxxxxxxx
+     */
+    public static String generateTimeOrderedUuid() {
+        long timestampAndSequence = LAST_TIMESTAMP_AND_SEQUENCE.updateAndGet(previous ->
+                Math.max(System.currentTimeMillis() << SEQUENCE_BITS, previous + 1));
+        long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+        long sequence = timestampAndSequence & SEQUENCE_MASK;
+
+        long mostSigBits = (timestamp << 16) | VERSION_7 | sequence;
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & VARIANT_MASK) | VARIANT_RFC_9562;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * Insert a row keyed by a freshly generated time-ordered ID. Uniqueness is guaranteed by the
+     * database constraint on the ID column; if the insert is rejected by that constraint, it is retried
+     * with a new ID. Any other violation, such as a duplicate username, is rethrown on the first attempt.
+     * The insert must run in its own transaction so a rejected attempt can be retried.
+     * @param idConstraint name of the unique constraint on the ID column
+     * @param insert function that inserts the row using the given ID
+     * @return the result of the first successful insert
+     * @throws DataIntegrityViolationException if another constraint rejected the row, or every attempt was rejected
+     */
+    public static <T> T insertWithUniqueId(String idConstraint, Function<String, T> insert) {
+        DataIntegrityViolationException lastViolation = null;
+        for (int attempt = 0; attempt < MAX_INSERT_ATTEMPTS; attempt++) {
+            try {
+                return insert.apply(generateTimeOrderedUuid());
+            } catch (DataIntegrityViolationException e) {
+                if (!isViolationOf(e, idConstraint)) {
+                    throw e;
+                }
+                // Registered on the global registry, which Spring Boot wires to the application's registries
+                Metrics.counter(MetricsConstants.UUID_INSERT_RETRIES).increment();
+                lastViolation = e;
+            }
+        }
+        throw lastViolation;
+    }
+
     /**
-     * Generate a unique ID by checking if it already exists using the provided checker predicate
-     * @param existsChecker predicate that returns true if the ID already exists
-     * @return a unique UUID string that doesn't exist according to the checker
+     * Whether a violation was raised by the given constraint, as named by Hibernate in the cause chain.
+     * MySQL reports the key as {@code TABLE.KEY} and H2 as {@code SCHEMA.KEY_INDEX_n}, so only the last
+     * segment is compared, by prefix.
+     * @param e the violation
+     * @param constraint constraint name as declared in the schema
+     * @return true if the violated constraint is known and is the given one
      */
-    public static String generateUniqueId(Predicate<String> existsChecker) {
-        while (true) {
-            String candidateId = generateUuid();
-            if (!existsChecker.test(candidateId)) {
-                return candidateId;
+    public static boolean isViolationOf(DataIntegrityViolationException e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                String name = violation.getConstraintName();
+                name = name.substring(name.lastIndexOf('.') + 1);
+                return name.regionMatches(true, 0, constraint, 0, constraint.length())
+                        && (name.length() == constraint.length() || name.charAt(constraint.length()) == '_');
             }
         }
+        return false;
     }
-}
\ No newline at end of file
+}
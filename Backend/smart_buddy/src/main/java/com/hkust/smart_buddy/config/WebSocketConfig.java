@@ -0,0 +1,35 @@
+package com.hkust.smart_buddy.config;
+
+import com.hkust.smart_buddy.chatroom.websocket.ChatWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final ChatWebSocketHandler chatWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatWebSocketHandler, "/smart_buddy/chatroom/ws");
+    }
+
+    // Tomcat allocates both read buffers per connection up front, so they dominate the cost of an idle socket
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(
+            @Value("${websocket.chat.read-buffer-chars}") int readBufferChars,
+            @Value("${websocket.chat.idle-timeout-ms}") long idleTimeoutMs) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(readBufferChars);
+        container.setMaxBinaryMessageBufferSize(readBufferChars);
+        container.setMaxSessionIdleTimeout(idleTimeoutMs);
+        return container;
+    }
+}
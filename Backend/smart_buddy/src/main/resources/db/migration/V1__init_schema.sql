@@ -18,7 +18,7 @@ CREATE TABLE MESSAGE (
     MESSAGEID VARCHAR(36) NOT NULL,
     USERID VARCHAR(36) NOT NULL,
     CONTENT TEXT,
-    SENDER VARCHAR(2) NOT NULL, # 'A' for AI, 'U' for user
+    SENDER VARCHAR(2) NOT NULL, -- 'A' for AI, 'U' for user
     CREATED_BY VARCHAR(50),
     CREATED_DT DATETIME,
     LAST_MODIFY_BY VARCHAR(50),
@@ -0,0 +1,6 @@
+-- MESSAGEID is probed and joined on by value, so it must be unique and indexed
+CREATE UNIQUE INDEX UK_MESSAGE_MESSAGEID ON MESSAGE (MESSAGEID);
+
+-- Backs the chat history scans: WHERE USERID = ? ORDER BY CREATED_DT DESC, RECORD_ID DESC.
+-- Both sort columns are descending so the index can serve the keyset order without a filesort.
+CREATE INDEX IDX_MESSAGE_USERID_CREATED_DT ON MESSAGE (USERID, CREATED_DT DESC, RECORD_ID DESC);
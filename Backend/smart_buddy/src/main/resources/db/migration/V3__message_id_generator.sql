@@ -0,0 +1,11 @@
+-- Pooled (pooled-lo) key allocation for MESSAGE.RECORD_ID so Hibernate can batch message inserts.
+-- Each NEXT_VAL read reserves the block [NEXT_VAL, NEXT_VAL + 49]; keys are assigned explicitly, so the
+-- AUTO_INCREMENT on RECORD_ID is no longer used for messages.
+CREATE TABLE ID_GENERATOR (
+    SEQUENCE_NAME VARCHAR(255) NOT NULL,
+    NEXT_VAL BIGINT,
+    PRIMARY KEY (SEQUENCE_NAME)
+);
+
+INSERT INTO ID_GENERATOR (SEQUENCE_NAME, NEXT_VAL)
+SELECT 'MESSAGE', COALESCE(MAX(RECORD_ID), 0) + 1 FROM MESSAGE;
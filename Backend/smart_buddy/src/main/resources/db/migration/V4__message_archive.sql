@@ -0,0 +1,26 @@
+-- Cold tier for chat history. The archiver moves the oldest MESSAGE rows here in small batches, so the hot
+-- table and its indexes only hold recent history. CONTENT is deflated UTF-8, written and read by the application.
+-- RECORD_ID keeps the hot row's key, so (CREATED_DT, RECORD_ID) cursors order both tiers the same way.
+CREATE TABLE MESSAGE_ARCHIVE (
+    RECORD_ID BIGINT NOT NULL,
+    MESSAGEID VARCHAR(36) NOT NULL,
+    USERID VARCHAR(36) NOT NULL,
+    CONTENT MEDIUMBLOB,
+    SENDER VARCHAR(2) NOT NULL, -- 'A' for AI, 'U' for user
+    CREATED_BY VARCHAR(50),
+    CREATED_DT DATETIME,
+    LAST_MODIFY_BY VARCHAR(50),
+    LAST_MODIFY_DT DATETIME,
+    RECORD_VERSION BIGINT DEFAULT 0,
+    ARCHIVED_DT DATETIME,
+    PRIMARY KEY (RECORD_ID),
+    FOREIGN KEY (USERID) REFERENCES USER(USERID)
+);
+
+CREATE UNIQUE INDEX UK_MESSAGE_ARCHIVE_MESSAGEID ON MESSAGE_ARCHIVE (MESSAGEID);
+
+-- Same shape as the hot history index, for history pages that run past the hot tier
+CREATE INDEX IDX_MESSAGE_ARCHIVE_USERID_CREATED_DT ON MESSAGE_ARCHIVE (USERID, CREATED_DT DESC, RECORD_ID DESC);
+
+-- Backs the archiver's scan for the oldest hot rows: WHERE CREATED_DT < ? ORDER BY CREATED_DT, RECORD_ID LIMIT ?
+CREATE INDEX IDX_MESSAGE_CREATED_DT ON MESSAGE (CREATED_DT, RECORD_ID);
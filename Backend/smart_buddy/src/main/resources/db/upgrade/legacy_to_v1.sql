@@ -0,0 +1,55 @@
+-- One-off upgrade of a database created before Flyway was introduced, when Hibernate's ddl-auto=update built the
+-- schema with lower-case table and column names, DATETIME(6) dates and no keys beyond the primary keys.
+-- Brings it to exactly the schema V1__init_schema.sql creates, keeping every row. Run it once, then start the
+-- application once with --spring.flyway.baseline-on-migrate=true so Flyway records the result as version 1 and
+-- applies the later migrations.
+--
+-- Check SHOW TABLES and SHOW CREATE TABLE USER first:
+--   - One user table, with a UNIQUE KEY USERID: the old schema.sql created the tables on a server with
+--     case-insensitive table names, and the schema already matches V1. Skip this script and only baseline.
+--   - Upper-case USER and MESSAGE next to lower-case user and message: schema.sql was run, but Hibernate wrote to
+--     the lower-case tables. Check that USER and MESSAGE are empty, drop them (DROP TABLE MESSAGE, USER), then run
+--     this script.
+-- Duplicate user IDs or usernames, or messages of unknown users, make the key statements at the end fail; resolve
+-- those rows and run the script again from the failed statement.
+
+-- Table names are case-sensitive only where lower_case_table_names is 0, as on Linux; elsewhere they already match
+SET @rename_tables = IF(@@lower_case_table_names = 0,
+        'RENAME TABLE `user` TO USER, `message` TO MESSAGE',
+        'DO 0');
+PREPARE rename_tables FROM @rename_tables;
+EXECUTE rename_tables;
+DEALLOCATE PREPARE rename_tables;
+
+-- Dates are rounded to whole seconds, as the application now stores them
+ALTER TABLE USER
+    CHANGE record_id RECORD_ID BIGINT NOT NULL AUTO_INCREMENT,
+    CHANGE userid USERID VARCHAR(36) NOT NULL,
+    CHANGE username USERNAME VARCHAR(255) NOT NULL,
+    CHANGE password PASSWORD VARCHAR(255) NOT NULL,
+    CHANGE email EMAIL VARCHAR(255) NOT NULL,
+    CHANGE created_by CREATED_BY VARCHAR(50),
+    CHANGE created_dt CREATED_DT DATETIME,
+    CHANGE last_modify_by LAST_MODIFY_BY VARCHAR(50),
+    CHANGE last_modify_dt LAST_MODIFY_DT DATETIME,
+    CHANGE record_version RECORD_VERSION BIGINT DEFAULT 0;
+
+ALTER TABLE MESSAGE
+    CHANGE record_id RECORD_ID BIGINT NOT NULL AUTO_INCREMENT,
+    CHANGE messageid MESSAGEID VARCHAR(36) NOT NULL,
+    CHANGE userid USERID VARCHAR(36) NOT NULL,
+    CHANGE content CONTENT TEXT,
+    CHANGE sender SENDER VARCHAR(2) NOT NULL,
+    CHANGE created_by CREATED_BY VARCHAR(50),
+    CHANGE created_dt CREATED_DT DATETIME,
+    CHANGE last_modify_by LAST_MODIFY_BY VARCHAR(50),
+    CHANGE last_modify_dt LAST_MODIFY_DT DATETIME,
+    CHANGE record_version RECORD_VERSION BIGINT DEFAULT 0;
+
+-- The keys V1 declares inline, under the names MySQL gives them there
+ALTER TABLE USER
+    ADD UNIQUE KEY USERID (USERID),
+    ADD UNIQUE KEY USERNAME (USERNAME);
+
+ALTER TABLE MESSAGE
+    ADD FOREIGN KEY (USERID) REFERENCES USER (USERID);
@@ -0,0 +1,128 @@
+package com.hkust.smart_buddy;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Upgrades a database laid out the way Hibernate's ddl-auto=update built it before Flyway, with lower-case table
+ * and column names, through {@code db/upgrade/legacy_to_v1.sql} and a baseline at version 1. The result must keep
+ * its rows and match a freshly migrated database column for column and key for key. Runs on Linux, where MySQL
+ * table names are case-sensitive.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class LegacySchemaUpgradeTest {
+
+    private static final String FRESH_DATABASE = "fresh";
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.4").withUsername("root");
+
+    // What ddl-auto=update created for the User and Message entities
+    private static final String LEGACY_USER_DDL = "CREATE TABLE user (record_id BIGINT NOT NULL AUTO_INCREMENT, "
+            + "created_by VARCHAR(50), created_dt DATETIME(6), last_modify_by VARCHAR(50), last_modify_dt DATETIME(6), "
+            + "record_version BIGINT DEFAULT 0, email VARCHAR(255) NOT NULL, password VARCHAR(255) NOT NULL, "
+            + "userid VARCHAR(36) NOT NULL, username VARCHAR(255) NOT NULL, PRIMARY KEY (record_id)) ENGINE=InnoDB";
+    private static final String LEGACY_MESSAGE_DDL = "CREATE TABLE message (record_id BIGINT NOT NULL AUTO_INCREMENT, "
+            + "created_by VARCHAR(50), created_dt DATETIME(6), last_modify_by VARCHAR(50), last_modify_dt DATETIME(6), "
+            + "record_version BIGINT DEFAULT 0, content TEXT, messageid VARCHAR(36) NOT NULL, "
+            + "sender VARCHAR(2) NOT NULL, userid VARCHAR(36) NOT NULL, PRIMARY KEY (record_id)) ENGINE=InnoDB";
+
+    private static final String COLUMNS_SQL = "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, "
+            + "COLUMN_DEFAULT, EXTRA FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? "
+            + "AND TABLE_NAME <> 'flyway_schema_history' ORDER BY TABLE_NAME, COLUMN_NAME";
+    private static final String KEYS_SQL = "SELECT TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX, COLUMN_NAME, NON_UNIQUE, "
+            + "COLLATION FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = ? "
+            + "AND TABLE_NAME <> 'flyway_schema_history' ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX";
+    private static final String FOREIGN_KEYS_SQL = "SELECT TABLE_NAME, CONSTRAINT_NAME, COLUMN_NAME, "
+            + "REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE "
+            + "WHERE TABLE_SCHEMA = ? AND REFERENCED_TABLE_NAME IS NOT NULL ORDER BY TABLE_NAME, CONSTRAINT_NAME";
+
+    @Test
+    void upgradeScript_LegacySchema_KeepsRowsAndMatchesMigratedSchema() throws SQLException {
+        try (Connection connection = openConnection(MYSQL.getDatabaseName());
+             Statement statement = connection.createStatement()) {
+            statement.execute(LEGACY_USER_DDL);
+            statement.execute(LEGACY_MESSAGE_DDL);
+            statement.execute("INSERT INTO user (userid, username, password, email, created_dt) "
+                    + "VALUES ('user-1', 'legacy-user', 'x', 'x@test.com', '2025-01-01 12:00:00.400000')");
+            statement.execute("INSERT INTO message (messageid, userid, content, sender, created_dt) "
+                    + "VALUES ('msg-1', 'user-1', 'Best time to visit Tokyo?', 'U', '2025-01-01 12:00:00.400000')");
+            statement.execute("CREATE DATABASE " + FRESH_DATABASE);
+
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/upgrade/legacy_to_v1.sql"));
+        }
+        migrate(MYSQL.getDatabaseName(), true);
+        migrate(FRESH_DATABASE, false);
+
+        try (Connection connection = openConnection(MYSQL.getDatabaseName());
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT m.MESSAGEID, m.CREATED_DT, u.USERNAME "
+                     + "FROM MESSAGE m JOIN USER u ON u.USERID = m.USERID")) {
+            assertTrue(rows.next());
+            assertEquals("msg-1", rows.getString(1));
+            assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), rows.getObject(2, LocalDateTime.class));
+            assertEquals("legacy-user", rows.getString(3));
+            assertFalse(rows.next());
+        }
+        assertEquals(describe(FRESH_DATABASE, COLUMNS_SQL), describe(MYSQL.getDatabaseName(), COLUMNS_SQL));
+        assertEquals(describe(FRESH_DATABASE, KEYS_SQL), describe(MYSQL.getDatabaseName(), KEYS_SQL));
+        assertEquals(describe(FRESH_DATABASE, FOREIGN_KEYS_SQL), describe(MYSQL.getDatabaseName(), FOREIGN_KEYS_SQL));
+    }
+
+    private static void migrate(String database, boolean baseline) {
+        Flyway.configure()
+                .dataSource(jdbcUrl(database), MYSQL.getUsername(), MYSQL.getPassword())
+                .baselineOnMigrate(baseline)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    /**
+     * One line per row of the information_schema query, compared as plain strings so a name's case counts
+     */
+    private static List<String> describe(String database, String sql) throws SQLException {
+        List<String> lines = new ArrayList<>();
+        try (Connection connection = openConnection(database);
+             PreparedStatement query = connection.prepareStatement(sql)) {
+            query.setString(1, database);
+            try (ResultSet rows = query.executeQuery()) {
+                int columns = rows.getMetaData().getColumnCount();
+                while (rows.next()) {
+                    StringBuilder line = new StringBuilder();
+                    for (int i = 1; i <= columns; i++) {
+                        line.append(rows.getString(i)).append('|');
+                    }
+                    lines.add(line.toString());
+                }
+            }
+        }
+        assertFalse(lines.isEmpty(), "No schema found in " + database);
+        return lines;
+    }
+
+    private static String jdbcUrl(String database) {
+        return MYSQL.getJdbcUrl().replace("/" + MYSQL.getDatabaseName(), "/" + database);
+    }
+
+    private static Connection openConnection(String database) throws SQLException {
+        return DriverManager.getConnection(jdbcUrl(database), MYSQL.getUsername(), MYSQL.getPassword());
+    }
+}
@@ -0,0 +1,105 @@
+package com.hkust.smart_buddy;
+
+import com.hkust.smart_buddy.auth.domain.User;
+import com.hkust.smart_buddy.auth.dto.UserDto;
+import com.hkust.smart_buddy.auth.repository.UserRepository;
+import com.hkust.smart_buddy.auth.service.UserService;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.service.MessageWriteBuffer;
+import com.hkust.smart_buddy.common.constants.DatabaseConstants;
+import com.hkust.smart_buddy.common.util.UuidUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the whole application against a MySQL schema built by the Flyway migrations, so the build fails if
+ * {@code ddl-auto=validate} finds an entity that does not match its table. The container runs on Linux, where
+ * MySQL table names are case-sensitive, as in production.
+ */
+@SpringBootTest(classes = SmartBuddyApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.server.port=0", "message.archive.enabled=false"})
+@Testcontainers(disabledWithoutDocker = true)
+class SmartBuddyApplicationTests {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.4");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageArchiveRepository messageArchiveRepository;
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @Test
+    void contextLoads_MigratedSchema_PassesValidationAndRoundTripsEveryTable() {
+        userService.createUser(UserDto.builder()
+                .username("boot-test-user")
+                .password("boot-test-password")
+                .confirmPassword("boot-test-password")
+                .email("boot-test@example.com")
+                .build());
+        User user = userRepository.findByUsername("boot-test-user").orElseThrow();
+
+        Message written = messageWriteBuffer.write(message(user.getUserId())).join();
+        List<Message> hot = messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(
+                user.getUserId(), PageRequest.of(0, 10));
+        assertEquals(List.of(written.getMessageId()), hot.stream().map(Message::getMessageId).toList());
+        assertNotNull(hot.getFirst().getRecordId());
+
+        messageArchiveRepository.moveToArchive(hot, LocalDateTime.now());
+        List<MessageArchive> archived = messageArchiveRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(
+                user.getUserId(), PageRequest.of(0, 10));
+        assertEquals(0, messageRepository.countByUserId(user.getUserId()));
+        assertEquals(1, archived.size());
+        assertEquals(written.getContent(), archived.getFirst().toMessage().getContent());
+        assertEquals(written.getCreatedDate(), archived.getFirst().getCreatedDate());
+    }
+
+    private static Message message(String userId) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        return Message.builder()
+                .messageId(UuidUtil.generateTimeOrderedUuid())
+                .userId(userId)
+                .content("Best time to visit Tokyo?")
+                .sender(MessageConstants.SENDER_USER)
+                .createdBy(MessageConstants.SENDER_USER)
+                .createdDate(now)
+                .lastModifiedBy(MessageConstants.SENDER_USER)
+                .lastModifiedDate(now)
+                .recordVersion(DatabaseConstants.DEFAULT_RECORD_VERSION)
+                .build();
+    }
+}
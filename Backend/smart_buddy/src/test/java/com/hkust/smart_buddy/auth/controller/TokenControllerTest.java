@@ -15,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -22,6 +23,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class TokenControllerTest {
 
+    private static final String CLIENT_ADDRESS = "10.0.0.1";
+
     @Mock
     private TokenService tokenService;
 
@@ -30,6 +33,7 @@ class TokenControllerTest {
 
     private CredentialDto validCredentials;
     private TokenDto tokenDto;
+    private MockHttpServletRequest request;
 
     @BeforeEach
     void setUp() {
@@ -37,6 +41,9 @@ class TokenControllerTest {
         validCredentials.setUsername("testuser");
         validCredentials.setPassword("testpassword");
 
+        request = new MockHttpServletRequest();
+        request.setRemoteAddr(CLIENT_ADDRESS);
+
         tokenDto = TokenDto.builder()
                 .token("jwt-token-123")
                 .build();
@@ -44,9 +51,9 @@ class TokenControllerTest {
 
     @Test
     void createToken_ValidCredentials_ReturnsTokenSuccessfully() {
-        when(tokenService.createToken("testuser", "testpassword"))
+        when(tokenService.createToken("testuser", "testpassword", CLIENT_ADDRESS))
                 .thenReturn(tokenDto);
-        ResponseEntity<ApiResponse<TokenDto>> response = tokenController.createToken(validCredentials);
+        ResponseEntity<ApiResponse<TokenDto>> response = tokenController.createToken(validCredentials, request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -61,9 +68,9 @@ class TokenControllerTest {
         invalidCredentials.setUsername("nonexistentuser");
         invalidCredentials.setPassword("password");
 
-        when(tokenService.createToken("nonexistentuser", "password"))
+        when(tokenService.createToken("nonexistentuser", "password", CLIENT_ADDRESS))
                 .thenThrow(new UserNotExistException(AuthConstants.USER_NOT_EXIST));
-        assertThrows(UserNotExistException.class, () -> tokenController.createToken(invalidCredentials));
+        assertThrows(UserNotExistException.class, () -> tokenController.createToken(invalidCredentials, request));
     }
 
     @Test
@@ -72,10 +79,10 @@ class TokenControllerTest {
         wrongPasswordCredentials.setUsername("testuser");
         wrongPasswordCredentials.setPassword("wrongpassword");
 
-        when(tokenService.createToken("testuser", "wrongpassword"))
+        when(tokenService.createToken("testuser", "wrongpassword", CLIENT_ADDRESS))
                 .thenThrow(new WrongPasswordException(AuthConstants.WRONG_PASSWORD));
 
-        assertThrows(WrongPasswordException.class, () -> tokenController.createToken(wrongPasswordCredentials));
+        assertThrows(WrongPasswordException.class, () -> tokenController.createToken(wrongPasswordCredentials, request));
     }
 
     @Test
@@ -83,10 +90,10 @@ class TokenControllerTest {
         CredentialDto nullUsernameCredentials = new CredentialDto();
         nullUsernameCredentials.setPassword("password");
 
-        when(tokenService.createToken(null, "password"))
+        when(tokenService.createToken(null, "password", CLIENT_ADDRESS))
                 .thenThrow(new UserNotExistException(AuthConstants.USER_NOT_EXIST));
 
-        assertThrows(UserNotExistException.class, () -> tokenController.createToken(nullUsernameCredentials));
+        assertThrows(UserNotExistException.class, () -> tokenController.createToken(nullUsernameCredentials, request));
     }
 
     @Test
@@ -94,9 +101,9 @@ class TokenControllerTest {
         CredentialDto nullPasswordCredentials = new CredentialDto();
         nullPasswordCredentials.setUsername("testuser");
 
-        when(tokenService.createToken("testuser", null))
+        when(tokenService.createToken("testuser", null, CLIENT_ADDRESS))
                 .thenThrow(new WrongPasswordException(AuthConstants.WRONG_PASSWORD));
 
-        assertThrows(WrongPasswordException.class, () -> tokenController.createToken(nullPasswordCredentials));
+        assertThrows(WrongPasswordException.class, () -> tokenController.createToken(nullPasswordCredentials, request));
     }
 }
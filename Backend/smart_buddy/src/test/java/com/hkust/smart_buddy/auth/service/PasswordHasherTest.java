@@ -0,0 +1,149 @@
+package com.hkust.smart_buddy.auth.service;
+
+import com.hkust.smart_buddy.auth.exception.LoginThrottledException;
+import com.hkust.smart_buddy.auth.exception.PasswordHashingBusyException;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockingEncoder encoder = new BlockingEncoder();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        encoder.release.countDown();
+        callers.shutdown();
+        if (passwordHasher != null) {
+            passwordHasher.shutdown();
+        }
+    }
+
+    @Test
+    void matches_RunsOnHashingPool() {
+        encoder.release.countDown();
+        passwordHasher = new PasswordHasher(encoder, 10, 1, 1, 1, meterRegistry);
+
+        assertTrue(passwordHasher.matches("password", "password", "alice", "10.0.0.1"));
+        assertTrue(encoder.lastThread.startsWith("password-hasher-"));
+    }
+
+    @Test
+    void matches_SameUsernameAtLimit_Throttled() throws Exception {
+        passwordHasher = new PasswordHasher(encoder, 10, 1, 10, 1, meterRegistry);
+        Future<Boolean> first = callers.submit(() -> passwordHasher.matches("password", "password", "alice", "10.0.0.1"));
+        assertTrue(encoder.entered.await(5, TimeUnit.SECONDS));
+
+        assertThrows(LoginThrottledException.class, () ->
+            passwordHasher.matches("password", "password", "Alice", "10.0.0.2"));
+
+        encoder.release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        // The first attempt finished, so the username is admitted again
+        assertTrue(passwordHasher.matches("password", "password", "alice", "10.0.0.2"));
+        assertEquals(1, rejections(MetricsConstants.REASON_PER_KEY_LIMIT));
+    }
+
+    @Test
+    void matches_PoolAndQueueFull_RejectedImmediately() throws Exception {
+        passwordHasher = new PasswordHasher(encoder, 10, 1, 1, 10, meterRegistry);
+        Future<Boolean> running = callers.submit(() -> passwordHasher.matches("password", "password", "alice", "10.0.0.1"));
+        assertTrue(encoder.entered.await(5, TimeUnit.SECONDS));
+        Future<Boolean> queued = callers.submit(() -> passwordHasher.matches("password", "password", "bob", "10.0.0.2"));
+        awaitQueued();
+
+        assertThrows(PasswordHashingBusyException.class, () ->
+            passwordHasher.matches("password", "password", "carol", "10.0.0.3"));
+
+        encoder.release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, rejections(MetricsConstants.REASON_QUEUE_FULL));
+    }
+
+    @Test
+    void encodeWhenIdle_PoolIdle_HashesOnPool() {
+        passwordHasher = new PasswordHasher(encoder, 10, 1, 1, 1, meterRegistry);
+
+        assertEquals("password", passwordHasher.encodeWhenIdle("password").join());
+        assertTrue(encoder.lastThread.startsWith("password-hasher-"));
+    }
+
+    @Test
+    void encodeWhenIdle_CheckRunningWithRoomInPool_Skipped() throws Exception {
+        passwordHasher = new PasswordHasher(encoder, 10, 2, 10, 1, meterRegistry);
+        Future<Boolean> running = callers.submit(() -> passwordHasher.matches("password", "password", "alice", "10.0.0.1"));
+        assertTrue(encoder.entered.await(5, TimeUnit.SECONDS));
+
+        assertNull(passwordHasher.encodeWhenIdle("password").join());
+
+        encoder.release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "$2a$10$abcdefghijklmnopqrstuv, false",
+        "$2a$12$abcdefghijklmnopqrstuv, true",
+        "$2b$08$abcdefghijklmnopqrstuv, true",
+        "not-a-bcrypt-hash, false"
+    })
+    void needsRehash_ComparesCostWithConfiguredStrength(String encodedPassword, boolean expected) {
+        passwordHasher = new PasswordHasher(encoder, 10, 1, 1, 1, meterRegistry);
+
+        assertEquals(expected, passwordHasher.needsRehash(encodedPassword));
+    }
+
+    private void awaitQueued() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(MetricsConstants.PASSWORD_HASHING_QUEUED).gauge().value() < 1) {
+            assertTrue(System.nanoTime() < deadline, "second check was never queued");
+            Thread.sleep(10);
+        }
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.counter(MetricsConstants.PASSWORD_HASHING_REJECTIONS, MetricsConstants.TAG_REASON, reason)
+                .count();
+    }
+
+    // Compares plainly, holding every call until released
+    private static class BlockingEncoder implements PasswordEncoder {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile String lastThread;
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            lastThread = Thread.currentThread().getName();
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            lastThread = Thread.currentThread().getName();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -6,7 +6,10 @@ import com.hkust.smart_buddy.auth.dto.TokenDto;
 import com.hkust.smart_buddy.auth.exception.UserNotExistException;
 import com.hkust.smart_buddy.auth.exception.WrongPasswordException;
 import com.hkust.smart_buddy.auth.repository.UserRepository;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
 import com.hkust.smart_buddy.common.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,10 +18,14 @@ import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,14 +33,22 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class TokenServiceTest {
 
+    private static final String CLIENT_ADDRESS = "10.0.0.1";
+
     @Mock
-    private UserRepository userRepository;
+    private UserCache userCache;
 
     @Mock
     private JwtUtil jwtUtil;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private TokenService tokenService;
@@ -61,46 +76,46 @@ class TokenServiceTest {
 
     @Test
     void createToken_ValidCredentials_ReturnsTokenDto() {
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches(password, encodedPassword)).thenReturn(true);
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(testUser));
+        when(passwordHasher.matches(password, encodedPassword, username, CLIENT_ADDRESS)).thenReturn(true);
         when(jwtUtil.generateToken(username, userId)).thenReturn(expectedToken);
 
-        TokenDto result = tokenService.createToken(username, password);
+        TokenDto result = tokenService.createToken(username, password, CLIENT_ADDRESS);
 
         assertNotNull(result);
         assertEquals(expectedToken, result.getToken());
 
-        verify(userRepository, times(1)).findByUsername(username);
-        verify(passwordEncoder, times(1)).matches(password, encodedPassword);
+        verify(userCache, times(1)).findByUsername(username);
+        verify(passwordHasher, times(1)).matches(password, encodedPassword, username, CLIENT_ADDRESS);
         verify(jwtUtil, times(1)).generateToken(username, userId);
     }
 
     @ParameterizedTest
     @ValueSource(strings = {"nonexistent", "unknownuser", "invaliduser"})
     void createToken_UserNotFound_ThrowsUserNotExistException(String nonExistentUsername) {
-        when(userRepository.findByUsername(nonExistentUsername)).thenReturn(Optional.empty());
+        when(userCache.findByUsername(nonExistentUsername)).thenReturn(Optional.empty());
 
         UserNotExistException exception = assertThrows(UserNotExistException.class, () ->
-            tokenService.createToken(nonExistentUsername, password));
+            tokenService.createToken(nonExistentUsername, password, CLIENT_ADDRESS));
 
         assertEquals(AuthConstants.USER_NOT_EXIST, exception.getMessage());
 
-        verify(userRepository, times(1)).findByUsername(nonExistentUsername);
-        verify(passwordEncoder, never()).matches(anyString(), anyString());
+        verify(userCache, times(1)).findByUsername(nonExistentUsername);
+        verify(passwordHasher, never()).matches(any(), any(), any(), any());
         verify(jwtUtil, never()).generateToken(anyString(), anyString());
     }
 
     @Test
     void createToken_NullUsername_ThrowsUserNotExistException() {
-        when(userRepository.findByUsername(null)).thenReturn(Optional.empty());
+        when(userCache.findByUsername(null)).thenReturn(Optional.empty());
 
         UserNotExistException exception = assertThrows(UserNotExistException.class, () ->
-            tokenService.createToken(null, password));
+            tokenService.createToken(null, password, CLIENT_ADDRESS));
 
         assertEquals(AuthConstants.USER_NOT_EXIST, exception.getMessage());
 
-        verify(userRepository, times(1)).findByUsername(null);
-        verify(passwordEncoder, never()).matches(anyString(), anyString());
+        verify(userCache, times(1)).findByUsername(null);
+        verify(passwordHasher, never()).matches(any(), any(), any(), any());
         verify(jwtUtil, never()).generateToken(anyString(), anyString());
     }
 
@@ -108,16 +123,16 @@ class TokenServiceTest {
     @NullAndEmptySource
     @ValueSource(strings = {"wrongpassword", "invalidpass", "badpassword"})
     void createToken_InvalidPassword_ThrowsWrongPasswordException(String invalidPassword) {
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches(invalidPassword, encodedPassword)).thenReturn(false);
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(testUser));
+        when(passwordHasher.matches(invalidPassword, encodedPassword, username, CLIENT_ADDRESS)).thenReturn(false);
 
         WrongPasswordException exception = assertThrows(WrongPasswordException.class, () ->
-            tokenService.createToken(username, invalidPassword));
+            tokenService.createToken(username, invalidPassword, CLIENT_ADDRESS));
 
         assertEquals(AuthConstants.WRONG_PASSWORD, exception.getMessage());
 
-        verify(userRepository, times(1)).findByUsername(username);
-        verify(passwordEncoder, times(1)).matches(invalidPassword, encodedPassword);
+        verify(userCache, times(1)).findByUsername(username);
+        verify(passwordHasher, times(1)).matches(invalidPassword, encodedPassword, username, CLIENT_ADDRESS);
         verify(jwtUtil, never()).generateToken(anyString(), anyString());
     }
 
@@ -128,16 +143,66 @@ class TokenServiceTest {
         userWithNullPassword.setUsername(username);
         userWithNullPassword.setPassword(null);
 
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(userWithNullPassword));
-        when(passwordEncoder.matches(password, null)).thenReturn(false);
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(userWithNullPassword));
+        when(passwordHasher.matches(password, null, username, CLIENT_ADDRESS)).thenReturn(false);
 
         WrongPasswordException exception = assertThrows(WrongPasswordException.class, () ->
-            tokenService.createToken(username, password));
+            tokenService.createToken(username, password, CLIENT_ADDRESS));
 
         assertEquals(AuthConstants.WRONG_PASSWORD, exception.getMessage());
 
-        verify(userRepository, times(1)).findByUsername(username);
-        verify(passwordEncoder, times(1)).matches(password, null);
+        verify(userCache, times(1)).findByUsername(username);
+        verify(passwordHasher, times(1)).matches(password, null, username, CLIENT_ADDRESS);
         verify(jwtUtil, never()).generateToken(anyString(), anyString());
     }
+
+    @Test
+    void createToken_HashWithOldCost_RehashedOffHashingPoolAndCacheEvicted() throws Exception {
+        String rehashedPassword = "$2a$12$rehashedPassword";
+        CompletableFuture<String> rehashed = new CompletableFuture<>();
+        AtomicReference<String> updateThread = new AtomicReference<>();
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(testUser));
+        when(passwordHasher.matches(password, encodedPassword, username, CLIENT_ADDRESS)).thenReturn(true);
+        when(passwordHasher.needsRehash(encodedPassword)).thenReturn(true);
+        when(passwordHasher.encodeWhenIdle(password)).thenReturn(rehashed);
+        when(userRepository.updatePassword(eq(userId), eq(encodedPassword), eq(rehashedPassword), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    updateThread.set(Thread.currentThread().getName());
+                    return 1;
+                });
+        when(jwtUtil.generateToken(username, userId)).thenReturn(expectedToken);
+
+        TokenDto result = tokenService.createToken(username, password, CLIENT_ADDRESS);
+        // Finish the hash the way the hashing pool would, from one of its threads
+        Thread hasher = Thread.ofPlatform().name("password-hasher-0").start(() -> rehashed.complete(rehashedPassword));
+        hasher.join();
+
+        assertEquals(expectedToken, result.getToken());
+        verify(userCache, timeout(1000)).evict(testUser);
+        assertTrue(updateThread.get().startsWith("password-rehash-"));
+        awaitRehashCount(1);
+    }
+
+    @Test
+    void createToken_RehashSkippedWhenBusy_LoginStillSucceeds() {
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(testUser));
+        when(passwordHasher.matches(password, encodedPassword, username, CLIENT_ADDRESS)).thenReturn(true);
+        when(passwordHasher.needsRehash(encodedPassword)).thenReturn(true);
+        when(passwordHasher.encodeWhenIdle(password)).thenReturn(CompletableFuture.completedFuture(null));
+        when(jwtUtil.generateToken(username, userId)).thenReturn(expectedToken);
+
+        TokenDto result = tokenService.createToken(username, password, CLIENT_ADDRESS);
+
+        assertEquals(expectedToken, result.getToken());
+        verifyNoInteractions(userRepository);
+        verify(userCache, never()).evict(any());
+    }
+
+    private void awaitRehashCount(double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (meterRegistry.counter(MetricsConstants.PASSWORD_REHASHES).count() < expected) {
+            assertTrue(System.nanoTime() < deadline, "rehash was never counted");
+            Thread.sleep(10);
+        }
+    }
 }
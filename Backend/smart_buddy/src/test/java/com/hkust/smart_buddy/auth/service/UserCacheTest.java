@@ -0,0 +1,84 @@
+package com.hkust.smart_buddy.auth.service;
+
+import com.hkust.smart_buddy.auth.domain.User;
+import com.hkust.smart_buddy.auth.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCache userCache;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(userRepository, 100, 600, 30, new SimpleMeterRegistry());
+        testUser = new User();
+        testUser.setUserId("user-123");
+        testUser.setUsername("testuser");
+    }
+
+    @Test
+    void findByUsername_SecondLookup_ServedWithoutRepository() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+        userCache.findByUsername("testuser");
+        Optional<User> result = userCache.findByUsername("TestUser");
+
+        assertSame(testUser, result.orElseThrow());
+        verify(userRepository, times(1)).findByUsername(anyString());
+    }
+
+    @Test
+    void findByUsername_UnknownUser_MissCached() {
+        when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+
+        assertTrue(userCache.findByUsername("nobody").isEmpty());
+        assertTrue(userCache.findByUsername("nobody").isEmpty());
+
+        verify(userRepository, times(1)).findByUsername("nobody");
+    }
+
+    @Test
+    void put_AfterCachedMiss_ReplacesMiss() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        userCache.findByUsername("testuser");
+
+        userCache.put(testUser);
+
+        assertSame(testUser, userCache.findByUsername("testuser").orElseThrow());
+        assertSame(testUser, userCache.findByUserId("user-123").orElseThrow());
+        verify(userRepository, never()).findByUserId(anyString());
+    }
+
+    @Test
+    void evict_CachedUser_ReadAgain() {
+        when(userRepository.findByUserId("user-123")).thenReturn(Optional.of(testUser));
+        userCache.findByUserId("user-123");
+
+        userCache.evict(testUser);
+        userCache.findByUserId("user-123");
+
+        verify(userRepository, times(2)).findByUserId("user-123");
+    }
+
+    @Test
+    void findByUsername_Null_NotLookedUp() {
+        assertTrue(userCache.findByUsername(null).isEmpty());
+
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -0,0 +1,88 @@
+package com.hkust.smart_buddy.auth.service;
+
+import com.hkust.smart_buddy.auth.repository.UserRepository;
+import com.hkust.smart_buddy.auth.repository.UserRepository.UsernameRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsernameBloomFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @BeforeEach
+    void setUp() {
+        usernameBloomFilter = new UsernameBloomFilter(userRepository, 1_000, 0.001, 2, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void mightExist_BeforeLoad_AlwaysTrue() {
+        assertTrue(usernameBloomFilter.mightExist("anyone"));
+    }
+
+    @Test
+    void load_PagesThroughUsers_ExistingNamesMightExist() {
+        when(userRepository.findByRecordIdGreaterThanOrderByRecordIdAsc(0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(row(1L, "alice"), row(2L, "bob")));
+        when(userRepository.findByRecordIdGreaterThanOrderByRecordIdAsc(2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(row(5L, "Carol")));
+
+        usernameBloomFilter.load();
+
+        assertTrue(usernameBloomFilter.mightExist("alice"));
+        assertTrue(usernameBloomFilter.mightExist("BOB"));
+        assertTrue(usernameBloomFilter.mightExist("carol"));
+        assertFalse(usernameBloomFilter.mightExist("dave"));
+        verify(userRepository, times(2)).findByRecordIdGreaterThanOrderByRecordIdAsc(anyLong(), any());
+    }
+
+    @Test
+    void add_AfterLoad_NewNameMightExist() {
+        when(userRepository.findByRecordIdGreaterThanOrderByRecordIdAsc(0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of());
+        usernameBloomFilter.load();
+
+        usernameBloomFilter.add("dave");
+
+        assertTrue(usernameBloomFilter.mightExist("dave"));
+    }
+
+    @Test
+    void load_QueryFails_KeepsQueryingDatabase() {
+        when(userRepository.findByRecordIdGreaterThanOrderByRecordIdAsc(anyLong(), any()))
+                .thenThrow(new IllegalStateException("Database down"));
+
+        usernameBloomFilter.load();
+
+        assertTrue(usernameBloomFilter.mightExist("dave"));
+    }
+
+    private static UsernameRow row(Long recordId, String username) {
+        return new UsernameRow() {
+            @Override
+            public Long getRecordId() {
+                return recordId;
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdviceCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_SameQuestionDifferentCaseAndPunctuation_ReturnsCachedAdvice() {
+        AdviceCache adviceCache = new AdviceCache(100, 60, false, 0.9, meterRegistry);
+        adviceCache.put("Best time to visit Tokyo?", "Spring or autumn");
+
+        assertEquals("Spring or autumn", adviceCache.get("  best TIME to visit tokyo!! "));
+        assertEquals(1, lookups(MetricsConstants.RESULT_HIT));
+    }
+
+    @Test
+    void get_UnknownQuestion_ReturnsNullAndCountsMiss() {
+        AdviceCache adviceCache = new AdviceCache(100, 60, false, 0.9, meterRegistry);
+        adviceCache.put("Best time to visit Tokyo?", "Spring or autumn");
+
+        assertNull(adviceCache.get("Best time to visit Osaka?"));
+        assertEquals(1, lookups(MetricsConstants.RESULT_MISS));
+    }
+
+    @Test
+    void get_SimilarityDisabled_NearDuplicateMisses() {
+        AdviceCache adviceCache = new AdviceCache(100, 60, false, 0.9, meterRegistry);
+        adviceCache.put("best time to visit Tokyo in spring", "Late March");
+
+        assertNull(adviceCache.get("the best time to visit Tokyo in spring"));
+    }
+
+    @Test
+    void get_SimilarityEnabled_NearDuplicateServedFromCache() {
+        AdviceCache adviceCache = new AdviceCache(100, 60, true, 0.9, meterRegistry);
+        adviceCache.put("best time to visit Tokyo in spring", "Late March");
+
+        assertEquals("Late March", adviceCache.get("the best time to visit Tokyo in spring"));
+        assertEquals(1, lookups(MetricsConstants.RESULT_SIMILAR_HIT));
+    }
+
+    @Test
+    void get_SimilarityEnabled_DifferentDestinationBelowThresholdMisses() {
+        AdviceCache adviceCache = new AdviceCache(100, 60, true, 0.9, meterRegistry);
+        adviceCache.put("best time to visit Tokyo", "Spring or autumn");
+
+        assertNull(adviceCache.get("best time to visit Osaka"));
+    }
+
+    @Test
+    void get_SimilarityEnabled_ReversedRouteMisses() {
+        AdviceCache adviceCache = new AdviceCache(100, 60, true, 0.9, meterRegistry);
+        adviceCache.put("flights from Tokyo to Kyoto", "Take the Shinkansen");
+
+        assertNull(adviceCache.get("flights from Kyoto to Tokyo"));
+    }
+
+    @Test
+    void constructor_ThresholdOutOfRange_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new AdviceCache(100, 60, true, 0, meterRegistry));
+        assertThrows(IllegalArgumentException.class, () -> new AdviceCache(100, 60, true, 1.5, meterRegistry));
+    }
+
+    @Test
+    void vectorize_AnyQuery_HasUnitLength() {
+        AdviceCache.TermVector vector = AdviceCache.vectorize(AdviceCache.normalize("Where should I eat in Osaka?"));
+
+        double squaredNorm = 0;
+        for (float weight : vector.weights()) {
+            squaredNorm += weight * weight;
+        }
+        assertEquals(1.0, squaredNorm, 1e-5);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get(MetricsConstants.ADVICE_CACHE_LOOKUPS)
+                .tag(MetricsConstants.TAG_RESULT, result)
+                .counter().count();
+    }
+}
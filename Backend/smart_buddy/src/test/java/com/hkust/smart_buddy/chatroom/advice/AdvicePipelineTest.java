@@ -0,0 +1,402 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.exception.AdviceQueueFullException;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository.TurnRow;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdvicePipelineTest {
+
+    private static final String USER_ID = "user-123";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdviceCache adviceCache = new AdviceCache(100, 60, false, 0.9, meterRegistry);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationContextAssembler noHistory = new ConversationContextAssembler(messageRepository, 10, 1000);
+    private AdvicePipeline advicePipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (advicePipeline != null) {
+            advicePipeline.shutdown();
+        }
+    }
+
+    @Test
+    void submit_Admitted_ReturnsBeforeAdviceAndDeliversItOnWorkerThread() throws InterruptedException {
+        advicePipeline = new AdvicePipeline(new StubAdviceProvider(200, 0, 0, 0, 0), adviceCache, noHistory,
+                1, 1, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<String> advice = new CopyOnWriteArrayList<>();
+        List<String> workerThreads = new CopyOnWriteArrayList<>();
+
+        long start = System.nanoTime();
+        String admitted = advicePipeline.submit(() -> "msg-user-123", USER_ID, "Tokyo in spring", result -> {
+            advice.add(result);
+            workerThreads.add(Thread.currentThread().getName());
+            delivered.countDown();
+        });
+        long submitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("msg-user-123", admitted);
+        assertTrue(submitMillis < 200, "submit should not wait for the model, took " + submitMillis + "ms");
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(MessageConstants.AI_ADVICE_PREFIX + "Tokyo in spring", advice.getFirst());
+        assertTrue(workerThreads.getFirst().startsWith("advice-worker-"));
+        assertEquals(1, meterRegistry.get(MetricsConstants.ADVICE_GENERATION_TIMER)
+                .tag(MetricsConstants.TAG_MODE, MetricsConstants.MODE_BLOCKING)
+                .tag(MetricsConstants.TAG_OUTCOME, MetricsConstants.OUTCOME_SUCCESS)
+                .timer().count());
+    }
+
+    @Test
+    void submit_ConcurrencyAndQueueExhausted_RejectsWithoutRunningAdmittedWork() {
+        advicePipeline = new AdvicePipeline(new StubAdviceProvider(1000, 0, 0, 0, 0), adviceCache, noHistory,
+                1, 1, false, meterRegistry);
+        advicePipeline.submit(() -> "running", USER_ID, "query 1", result -> { });
+        advicePipeline.submit(() -> "queued", USER_ID, "query 2", result -> { });
+        AtomicBoolean admittedWorkRan = new AtomicBoolean(false);
+
+        assertThrows(AdviceQueueFullException.class, () ->
+            advicePipeline.submit(() -> admittedWorkRan.getAndSet(true), USER_ID, "query 3", result -> { }));
+
+        assertFalse(admittedWorkRan.get());
+        assertEquals(1, meterRegistry.get(MetricsConstants.ADVICE_REJECTIONS).counter().count());
+    }
+
+    @Test
+    void submit_AdmittedWorkFails_ReleasesSlot() {
+        advicePipeline = new AdvicePipeline(new StubAdviceProvider(0, 0, 0, 0, 0), adviceCache, noHistory,
+                1, 0, false, meterRegistry);
+
+        assertThrows(IllegalStateException.class, () ->
+            advicePipeline.submit(() -> {
+                throw new IllegalStateException("Database error");
+            }, USER_ID, "query", result -> { }));
+
+        assertEquals("retry", advicePipeline.submit(() -> "retry", USER_ID, "query", result -> { }));
+    }
+
+    @Test
+    void submit_VirtualThreadMode_RunsGenerationOnVirtualThreadWithinConcurrencyLimit() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AdviceProvider trackingProvider = query -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            StubAdviceProvider.simulateLatency(50);
+            running.decrementAndGet();
+            return query;
+        };
+        advicePipeline = new AdvicePipeline(trackingProvider, adviceCache, noHistory, 2, 10, true, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(6);
+        List<Boolean> virtualWorkers = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            advicePipeline.submit(() -> null, USER_ID, "query " + i, result -> {
+                virtualWorkers.add(Thread.currentThread().isVirtual());
+                delivered.countDown();
+            });
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertTrue(virtualWorkers.stream().allMatch(Boolean::booleanValue));
+        assertTrue(maxRunning.get() <= 2, "At most 2 generations should run at once, saw " + maxRunning.get());
+    }
+
+    @Test
+    void submitStreaming_StubProvider_DeliversChunksThenAssembledAdvice() throws InterruptedException {
+        advicePipeline = new AdvicePipeline(new StubAdviceProvider(0, 10, 0, 0, 0), adviceCache, noHistory,
+                1, 1, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        List<String> advice = new CopyOnWriteArrayList<>();
+
+        advicePipeline.submitStreaming(() -> "msg-user-123", USER_ID, "best time to visit Tokyo",
+                chunks::add,
+                result -> {
+                    advice.add(result);
+                    delivered.countDown();
+                },
+                error -> fail("Streaming should not fail: " + error));
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        String expected = MessageConstants.AI_ADVICE_PREFIX + "best time to visit Tokyo";
+        assertEquals(expected, advice.getFirst());
+        assertTrue(chunks.size() > 1, "Advice should arrive in several chunks");
+        assertEquals(expected, String.join("", chunks));
+    }
+
+    @Test
+    void submit_RepeatedQuestion_ServedFromCacheWithoutModel() throws InterruptedException {
+        AtomicInteger modelCalls = new AtomicInteger();
+        AdviceProvider countingProvider = query -> {
+            modelCalls.incrementAndGet();
+            return "Advice for " + query;
+        };
+        advicePipeline = new AdvicePipeline(countingProvider, adviceCache, noHistory, 1, 1, false, meterRegistry);
+        CountDownLatch first = new CountDownLatch(1);
+        advicePipeline.submit(() -> null, USER_ID, "Best time to visit Tokyo?", result -> first.countDown());
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        CountDownLatch second = new CountDownLatch(1);
+        List<String> advice = new CopyOnWriteArrayList<>();
+
+        advicePipeline.submit(() -> null, USER_ID, "best time to visit tokyo", result -> {
+            advice.add(result);
+            second.countDown();
+        });
+
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertEquals("Advice for Best time to visit Tokyo?", advice.getFirst());
+        assertEquals(1, modelCalls.get());
+    }
+
+    @Test
+    void submit_FallbackAdvice_NotCached() throws InterruptedException {
+        AtomicInteger modelCalls = new AtomicInteger();
+        AdviceProvider fallbackProvider = query -> {
+            modelCalls.incrementAndGet();
+            return MessageConstants.ADVICE_FALLBACK;
+        };
+        advicePipeline = new AdvicePipeline(fallbackProvider, adviceCache, noHistory, 1, 1, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(2);
+
+        advicePipeline.submit(() -> null, USER_ID, "query", result -> delivered.countDown());
+        advicePipeline.submit(() -> null, USER_ID, "query", result -> delivered.countDown());
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, modelCalls.get());
+    }
+
+    @Test
+    void submitStreaming_CachedAdvice_DeliveredAsSingleChunk() throws InterruptedException {
+        adviceCache.put("best time to visit Tokyo", "Spring or autumn");
+        advicePipeline = new AdvicePipeline(query -> fail("Model should not be called"), adviceCache, noHistory,
+                1, 1, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        advicePipeline.submitStreaming(() -> null, USER_ID, "Best time to visit Tokyo", chunks::add,
+                result -> delivered.countDown(),
+                error -> fail("Streaming should not fail: " + error));
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("Spring or autumn"), chunks);
+    }
+
+    @Test
+    void submit_ConcurrentIdenticalQueries_ShareOneGeneration() throws InterruptedException {
+        AtomicInteger modelCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        AdviceProvider blockingProvider = query -> {
+            modelCalls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "Spring or autumn";
+        };
+        advicePipeline = new AdvicePipeline(blockingProvider, adviceCache, noHistory, 2, 10, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(3);
+        List<String> advice = new CopyOnWriteArrayList<>();
+
+        for (String query : List.of("Best time to visit Tokyo?", "best time to visit tokyo", "BEST TIME TO VISIT TOKYO")) {
+            advicePipeline.submit(() -> null, USER_ID, query, result -> {
+                advice.add(result);
+                delivered.countDown();
+            });
+        }
+        awaitCoalesced(2);
+        release.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, modelCalls.get());
+        assertEquals(List.of("Spring or autumn", "Spring or autumn", "Spring or autumn"), advice);
+        assertEquals(2.0 / 3, meterRegistry.get(MetricsConstants.ADVICE_COALESCING_RATIO).gauge().value(), 1e-9);
+    }
+
+    @Test
+    void submitStreaming_SharedGenerationFails_ReportsErrorToEveryRequest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AdviceProvider failingProvider = query -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Model unavailable");
+        };
+        advicePipeline = new AdvicePipeline(failingProvider, adviceCache, noHistory, 2, 10, false, meterRegistry);
+        CountDownLatch failed = new CountDownLatch(2);
+
+        for (int i = 0; i < 2; i++) {
+            advicePipeline.submitStreaming(() -> null, USER_ID, "query", chunk -> { },
+                    result -> fail("Advice should not be delivered"),
+                    error -> failed.countDown());
+        }
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submitStreaming_ProviderFails_ReportsErrorAndReleasesSlot() throws InterruptedException {
+        AdviceProvider failingProvider = query -> {
+            throw new IllegalStateException("Model unavailable");
+        };
+        advicePipeline = new AdvicePipeline(failingProvider, adviceCache, noHistory, 1, 0, false, meterRegistry);
+        CountDownLatch failed = new CountDownLatch(1);
+
+        advicePipeline.submitStreaming(() -> "msg-user-123", USER_ID, "query", chunk -> { },
+                result -> fail("Advice should not be delivered"),
+                error -> failed.countDown());
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals("next", awaitAdmission(() -> advicePipeline.submit(() -> "next", USER_ID, "query", result -> { })));
+    }
+
+    @Test
+    void submit_UserWithHistory_ModelGetsBoundedWindowWithoutPendingQuery() throws InterruptedException {
+        // Newest first, as the repository returns them; the pending question was committed before generation
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 3)))
+                .thenReturn(List.of(
+                        turn("And in winter?", MessageConstants.SENDER_USER),
+                        turn("Spring or autumn", MessageConstants.SENDER_AI),
+                        turn("Best time to visit Tokyo?", MessageConstants.SENDER_USER)));
+        // "User: And in winter?\n", "Assistant: Spring or autumn\n" and "User: Best time to visit Tokyo?\n" are
+        // 21, 28 and 32 characters, so at most two turns and 50 characters fit
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 2, 50);
+        List<String> contexts = new CopyOnWriteArrayList<>();
+        AdviceProvider contextProvider = new AdviceProvider() {
+            @Override
+            public String generateAdvice(String query) {
+                return fail("Context should be passed to the provider");
+            }
+
+            @Override
+            public String generateAdvice(String query, String context) {
+                contexts.add(context);
+                return "Quieter, with snow in the Alps";
+            }
+        };
+        advicePipeline = new AdvicePipeline(contextProvider, adviceCache, assembler, 1, 1, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(2);
+
+        advicePipeline.submit(() -> null, USER_ID, "And in winter?", result -> delivered.countDown());
+        advicePipeline.submit(() -> null, USER_ID, "And in spring?", result -> delivered.countDown());
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        // The pending question is skipped, and the oldest turn no longer fits
+        assertEquals("Assistant: Spring or autumn\n", contexts.get(0));
+        // The reused buffer was cleared, so the second prompt does not carry the first
+        assertEquals("Assistant: Spring or autumn\nUser: And in winter?\n", contexts.get(1));
+    }
+
+    @Test
+    void submit_UsersWithDifferentHistoriesAskSameQuestion_NeitherSharedNorCached() throws InterruptedException {
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 11)))
+                .thenReturn(List.of(turn("I am travelling with a baby", MessageConstants.SENDER_USER)));
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc("user-456", PageRequest.of(0, 11)))
+                .thenReturn(List.of(turn("I love nightlife", MessageConstants.SENDER_USER)));
+        AtomicInteger modelCalls = new AtomicInteger();
+        CountDownLatch bothGenerating = new CountDownLatch(2);
+        AdviceProvider contextProvider = new AdviceProvider() {
+            @Override
+            public String generateAdvice(String query) {
+                return fail("Context should be passed to the provider");
+            }
+
+            @Override
+            public String generateAdvice(String query, String context) {
+                modelCalls.incrementAndGet();
+                bothGenerating.countDown();
+                try {
+                    // Both questions are in flight at once, so the second could have joined the first
+                    bothGenerating.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "Advice given " + context.strip();
+            }
+        };
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 10, 1000);
+        advicePipeline = new AdvicePipeline(contextProvider, adviceCache, assembler, 2, 10, false, meterRegistry);
+        CountDownLatch delivered = new CountDownLatch(2);
+        Map<String, String> advice = new ConcurrentHashMap<>();
+
+        for (String userId : List.of(USER_ID, "user-456")) {
+            advicePipeline.submit(() -> null, userId, "Where should I stay in Tokyo?", result -> {
+                advice.put(userId, result);
+                delivered.countDown();
+            });
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, modelCalls.get());
+        assertEquals("Advice given User: I am travelling with a baby", advice.get(USER_ID));
+        assertEquals("Advice given User: I love nightlife", advice.get("user-456"));
+        assertEquals(0, meterRegistry.get(MetricsConstants.ADVICE_COALESCED).counter().count());
+        assertNull(adviceCache.get("Where should I stay in Tokyo?"));
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            if (meterRegistry.get(MetricsConstants.ADVICE_COALESCED).counter().count() >= expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Expected " + expected + " coalesced requests");
+    }
+
+    private static TurnRow turn(String content, String sender) {
+        return new TurnRow() {
+            @Override
+            public String getContent() {
+                return content;
+            }
+
+            @Override
+            public String getSender() {
+                return sender;
+            }
+
+            @Override
+            public LocalDateTime getCreatedDate() {
+                return LocalDateTime.of(2025, 1, 1, 12, 0);
+            }
+        };
+    }
+
+    // The slot is released just after onError runs, so give the worker a moment to finish
+    private static String awaitAdmission(Supplier<String> submission) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try {
+                return submission.get();
+            } catch (AdviceQueueFullException e) {
+                Thread.sleep(10);
+            }
+        }
+        return submission.get();
+    }
+}
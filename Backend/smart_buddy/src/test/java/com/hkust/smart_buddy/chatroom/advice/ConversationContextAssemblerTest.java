@@ -0,0 +1,115 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository.TurnRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationContextAssemblerTest {
+
+    private static final String USER_ID = "user-123";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Test
+    void appendWindow_TurnsWithinBudget_AppendedOldestFirstWithLabels() {
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 11)))
+                .thenReturn(List.of(
+                        turn("Spring or autumn", MessageConstants.SENDER_AI, 1),
+                        turn("Best time to visit Tokyo?", MessageConstants.SENDER_USER, 0)));
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 10, 1000);
+        StringBuilder prompt = new StringBuilder();
+
+        int turns = assembler.appendWindow(USER_ID, "What about Osaka?", prompt);
+
+        assertEquals(2, turns);
+        assertEquals("User: Best time to visit Tokyo?\nAssistant: Spring or autumn\n", prompt.toString());
+    }
+
+    @Test
+    void appendWindow_BudgetExceeded_DropsOlderTurnsWhole() {
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 11)))
+                .thenReturn(List.of(
+                        turn("newest", MessageConstants.SENDER_USER, 2),
+                        turn("middle", MessageConstants.SENDER_AI, 1),
+                        turn("a much longer oldest turn", MessageConstants.SENDER_USER, 0)));
+        // "User: newest\n" and "Assistant: middle\n" are 13 and 18 characters
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 10, 40);
+        StringBuilder prompt = new StringBuilder();
+
+        int turns = assembler.appendWindow(USER_ID, "What about Osaka?", prompt);
+
+        assertEquals(2, turns);
+        assertEquals("Assistant: middle\nUser: newest\n", prompt.toString());
+    }
+
+    @Test
+    void appendWindow_ReusedBuffer_AppendsAfterExistingContent() {
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(turn("hello", MessageConstants.SENDER_USER, 0)));
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 1, 1000);
+        StringBuilder prompt = new StringBuilder("System\n");
+
+        assembler.appendWindow(USER_ID, "What about Osaka?", prompt);
+
+        assertEquals("System\nUser: hello\n", prompt.toString());
+    }
+
+    @Test
+    void appendWindow_PendingQueryAlreadyCommitted_LeftOutOfWindow() {
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(
+                        turn("What about Osaka?", MessageConstants.SENDER_USER, 2),
+                        turn("Spring or autumn", MessageConstants.SENDER_AI, 1)));
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 1, 1000);
+        StringBuilder prompt = new StringBuilder();
+
+        int turns = assembler.appendWindow(USER_ID, "What about Osaka?", prompt);
+
+        assertEquals(1, turns);
+        assertEquals("Assistant: Spring or autumn\n", prompt.toString());
+    }
+
+    @Test
+    void appendWindow_NoHistory_AppendsNothing() {
+        when(messageRepository.findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc(anyString(), any()))
+                .thenReturn(List.of());
+        ConversationContextAssembler assembler = new ConversationContextAssembler(messageRepository, 10, 1000);
+        StringBuilder prompt = new StringBuilder();
+
+        assertEquals(0, assembler.appendWindow(USER_ID, "What about Osaka?", prompt));
+        assertEquals(0, prompt.length());
+    }
+
+    private static TurnRow turn(String content, String sender, int minute) {
+        return new TurnRow() {
+            @Override
+            public String getContent() {
+                return content;
+            }
+
+            @Override
+            public String getSender() {
+                return sender;
+            }
+
+            @Override
+            public LocalDateTime getCreatedDate() {
+                return START.plusMinutes(minute);
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.hkust.smart_buddy.chatroom.advice;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.exception.AdviceGenerationException;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilientAdviceProviderTest {
+
+    private static final String QUERY = "Best time to visit Tokyo";
+    private static final String ADVICE = MessageConstants.AI_ADVICE_PREFIX + QUERY;
+
+    @Mock
+    private AdviceProvider delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ResilientAdviceProvider provider;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        provider.shutdown();
+    }
+
+    @Test
+    void generateAdvice_ProviderHealthy_ReturnsAdvice() {
+        provider = provider(4, 1000, 2);
+        when(delegate.generateAdvice(QUERY)).thenReturn(ADVICE);
+
+        assertEquals(ADVICE, provider.generateAdvice(QUERY));
+    }
+
+    @Test
+    void generateAdvice_FailsOnce_RetriedWithinDeadline() {
+        provider = provider(4, 1000, 2);
+        when(delegate.generateAdvice(QUERY))
+                .thenThrow(new AdviceGenerationException(MessageConstants.ADVICE_INJECTED_FAILURE))
+                .thenReturn(ADVICE);
+
+        assertEquals(ADVICE, provider.generateAdvice(QUERY));
+        verify(delegate, times(2)).generateAdvice(QUERY);
+        assertEquals(1, meterRegistry.get(MetricsConstants.ADVICE_RETRIES).counter().count());
+    }
+
+    @Test
+    void generateAdvice_ProviderSlow_FallsBackAtDeadlineWithoutRetry() {
+        provider = provider(4, 50, 2);
+        when(delegate.generateAdvice(QUERY)).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return ADVICE;
+        });
+
+        assertEquals(MessageConstants.ADVICE_FALLBACK, provider.generateAdvice(QUERY));
+        verify(delegate, times(1)).generateAdvice(QUERY);
+        assertEquals(1, fallbacks(MetricsConstants.REASON_TIMEOUT));
+    }
+
+    @Test
+    void generateAdvice_CircuitOpen_SkipsProvider() {
+        provider = provider(4, 1000, 1);
+        when(delegate.generateAdvice(QUERY))
+                .thenThrow(new AdviceGenerationException(MessageConstants.ADVICE_INJECTED_FAILURE));
+
+        provider.generateAdvice(QUERY);
+        provider.generateAdvice(QUERY);
+        String advice = provider.generateAdvice(QUERY);
+
+        assertEquals(MessageConstants.ADVICE_FALLBACK, advice);
+        verify(delegate, times(2)).generateAdvice(QUERY);
+        assertEquals(2, fallbacks(MetricsConstants.REASON_ERROR));
+        assertEquals(1, fallbacks(MetricsConstants.REASON_CIRCUIT_OPEN));
+        assertEquals(1, meterRegistry.get(MetricsConstants.ADVICE_CIRCUIT_OPEN).gauge().value());
+    }
+
+    @Test
+    void generateAdvice_BulkheadFull_FallsBack() throws Exception {
+        provider = provider(1, 200, 1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.generateAdvice(QUERY)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ADVICE;
+        });
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> provider.generateAdvice(QUERY));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(MessageConstants.ADVICE_FALLBACK, provider.generateAdvice(QUERY));
+        assertEquals(1, fallbacks(MetricsConstants.REASON_BULKHEAD_FULL));
+        release.countDown();
+        first.join();
+    }
+
+    @Test
+    void streamAdvice_ProviderDown_FallbackDeliveredAsOnlyChunk() {
+        provider = provider(4, 1000, 1);
+        when(delegate.streamAdvice(eq(QUERY), any()))
+                .thenThrow(new AdviceGenerationException(MessageConstants.ADVICE_INJECTED_FAILURE));
+        List<String> chunks = new ArrayList<>();
+
+        String advice = provider.streamAdvice(QUERY, chunks::add);
+
+        assertEquals(MessageConstants.ADVICE_FALLBACK, advice);
+        assertEquals(List.of(MessageConstants.ADVICE_FALLBACK), chunks);
+    }
+
+    @Test
+    void streamAdvice_FailsAfterFirstChunk_ThrowsWithoutRetry() {
+        provider = provider(4, 1000, 2);
+        when(delegate.streamAdvice(eq(QUERY), any())).thenAnswer(invocation -> {
+            Consumer<String> onChunk = invocation.getArgument(1);
+            onChunk.accept(MessageConstants.AI_ADVICE_PREFIX);
+            throw new AdviceGenerationException(MessageConstants.ADVICE_INJECTED_FAILURE);
+        });
+        List<String> chunks = new ArrayList<>();
+
+        assertThrows(AdviceGenerationException.class, () -> provider.streamAdvice(QUERY, chunks::add));
+        assertEquals(List.of(MessageConstants.AI_ADVICE_PREFIX), chunks);
+        verify(delegate, times(1)).streamAdvice(eq(QUERY), any());
+    }
+
+    // Breaker opens once two calls were recorded and half of them failed
+    private ResilientAdviceProvider provider(int maxConcurrent, long timeoutMs, int maxAttempts) {
+        return new ResilientAdviceProvider(delegate, maxConcurrent, timeoutMs, 5000, maxAttempts, 10,
+                4, 2, 0.5, 60_000, meterRegistry);
+    }
+
+    private double fallbacks(String reason) {
+        return meterRegistry.get(MetricsConstants.ADVICE_FALLBACKS).tag(MetricsConstants.TAG_REASON, reason).counter().count();
+    }
+}
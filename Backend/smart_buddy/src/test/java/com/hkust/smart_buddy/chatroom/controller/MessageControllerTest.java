@@ -1,14 +1,17 @@
 package com.hkust.smart_buddy.chatroom.controller;
 
+import com.hkust.smart_buddy.chatroom.dto.ChatHistoryResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageAcceptedDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageItemDto;
+import com.hkust.smart_buddy.chatroom.dto.MessagePageDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageRequestDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageSyncResponseDto;
 import com.hkust.smart_buddy.chatroom.service.MessageService;
-import com.hkust.smart_buddy.common.exception.InvalidJwtTokenException;
+import com.hkust.smart_buddy.common.security.AuthenticatedUser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.junit.jupiter.params.ParameterizedTest;
-import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -17,11 +20,19 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +40,9 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class MessageControllerTest {
 
+    private static final String HISTORY_VERSION = "2-2";
+    private static final String HISTORY_ETAG_PREFIX = "W/\"2-2-";
+
     @Mock
     private MessageService messageService;
 
@@ -36,28 +50,32 @@ class MessageControllerTest {
     private MessageController messageController;
 
     private MessageRequestDto messageRequestDto;
-    private MessageResponseDto messageResponseDto;
-    private String validToken;
+    private MessageAcceptedDto messageAcceptedDto;
+    private AuthenticatedUser user;
     private Pageable pageable;
     private Page<MessageResponseDto> messagePage;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private ServletWebRequest webRequest;
 
     @BeforeEach
     void setUp() {
-        validToken = "valid-jwt-token";
+        user = new AuthenticatedUser("user-123-uuid", "testuser");
 
         messageRequestDto = MessageRequestDto.builder()
                 .content("Hello, I need travel advice")
-                .token(validToken)
                 .build();
 
-        messageResponseDto = MessageResponseDto.builder()
-                .content("Ai Advice for: Hello, I need travel advice")
-                .sender("A")
-                .createdDateTime(LocalDateTime.now())
+        messageAcceptedDto = MessageAcceptedDto.builder()
+                .messageId("msg-user-123")
                 .build();
 
         pageable = PageRequest.of(0, 10);
 
+        request = new MockHttpServletRequest("GET", "/smart_buddy/chatroom/chat-history");
+        response = new MockHttpServletResponse();
+        webRequest = new ServletWebRequest(request, response);
+
         List<MessageResponseDto> messageList = Arrays.asList(
                 MessageResponseDto.builder()
                         .content("Hello, I need travel advice")
@@ -75,11 +93,12 @@ class MessageControllerTest {
     }
 
     @Test
-    void getMessages_ValidToken_ReturnsMessagesSuccessfully() {
-        when(messageService.getMessages(validToken, pageable))
+    void getMessages_AuthenticatedUser_ReturnsMessagesSuccessfully() {
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        when(messageService.getMessages(user.userId(), pageable))
                 .thenReturn(messagePage);
 
-        ResponseEntity<Page<MessageResponseDto>> response = messageController.getMessages(validToken, pageable);
+        ResponseEntity<Page<MessageResponseDto>> response = messageController.getMessages(user, pageable, webRequest);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -87,78 +106,191 @@ class MessageControllerTest {
         assertEquals("Hello, I need travel advice", response.getBody().getContent().getFirst().getContent());
         assertEquals("U", response.getBody().getContent().getFirst().getSender());
 
-        verify(messageService, times(1)).getMessages(validToken, pageable);
+        verify(messageService, times(1)).getMessages(user.userId(), pageable);
     }
 
     @Test
     void getMessages_EmptyResult_ReturnsEmptyPage() {
         Page<MessageResponseDto> emptyPage = new PageImpl<>(List.of(), pageable, 0);
-        when(messageService.getMessages(validToken, pageable))
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        when(messageService.getMessages(user.userId(), pageable))
                 .thenReturn(emptyPage);
 
-        ResponseEntity<Page<MessageResponseDto>> response = messageController.getMessages(validToken, pageable);
+        ResponseEntity<Page<MessageResponseDto>> response = messageController.getMessages(user, pageable, webRequest);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertTrue(response.getBody().getContent().isEmpty());
         assertEquals(0, response.getBody().getTotalElements());
 
-        verify(messageService, times(1)).getMessages(validToken, pageable);
+        verify(messageService, times(1)).getMessages(user.userId(), pageable);
+    }
+
+    @Test
+    void getMessages_Modified_ReturnsPageWithHistoryETag() {
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        when(messageService.getMessages(user.userId(), pageable)).thenReturn(messagePage);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"1-1\"");
+
+        ResponseEntity<Page<MessageResponseDto>> result = messageController.getMessages(user, pageable, webRequest);
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertTrue(response.getHeader(HttpHeaders.ETAG).startsWith(HISTORY_ETAG_PREFIX));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        assertEquals("no-cache, private", result.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void getMessages_IfNoneMatchCurrent_NotModifiedWithoutLoadingPage() {
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH,
+                eTagOf(web -> messageController.getMessages(user, pageable, web)));
+
+        ResponseEntity<Page<MessageResponseDto>> result = messageController.getMessages(user, pageable, webRequest);
+
+        assertNull(result);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        // Only by the unconditional request that handed out the ETag
+        verify(messageService, times(1)).getMessages(anyString(), any());
     }
 
     @Test
-    void createMessages_ValidRequest_ReturnsMessageSuccessfully() {
-        when(messageService.createMessages(messageRequestDto))
-                .thenReturn(messageResponseDto);
+    void getMessagesByCursor_IfNoneMatchCurrent_NotModifiedWithoutLoadingPage() {
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH,
+                eTagOf(web -> messageController.getMessagesByCursor(user, "", 2, web)));
+
+        assertNull(messageController.getMessagesByCursor(user, "", 2, webRequest));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        // Only by the unconditional request that handed out the ETag
+        verify(messageService, times(1)).getMessagesByCursor(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void getMessagesByCursor_AuthenticatedUser_ReturnsHistoryWithCursor() {
+        ChatHistoryResponseDto history = ChatHistoryResponseDto.builder()
+                .messages(messagePage.getContent())
+                .nextCursor("next-cursor")
+                .hasMore(true)
+                .build();
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        when(messageService.getMessagesByCursor(user.userId(), "", 2)).thenReturn(history);
 
-        ResponseEntity<MessageResponseDto> response = messageController.createMessages(messageRequestDto);
+        ResponseEntity<ChatHistoryResponseDto> response = messageController.getMessagesByCursor(user, "", 2, webRequest);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Ai Advice for: Hello, I need travel advice", response.getBody().getContent());
-        assertEquals("A", response.getBody().getSender());
-        assertNotNull(response.getBody().getCreatedDateTime());
+        assertEquals(2, response.getBody().getMessages().size());
+        assertEquals("next-cursor", response.getBody().getNextCursor());
+        assertTrue(response.getBody().isHasMore());
 
-        verify(messageService, times(1)).createMessages(messageRequestDto);
+        verify(messageService, times(1)).getMessagesByCursor(user.userId(), "", 2);
     }
 
-    @ParameterizedTest
-    @ValueSource(strings = {"JWT token has expired", "JWT token signature is invalid", "JWT token is malformed"})
-    void createMessages_InvalidToken_ThrowsInvalidJwtTokenException(String errorMessage) {
-        when(messageService.createMessages(messageRequestDto))
-                .thenThrow(new InvalidJwtTokenException(errorMessage));
+    @Test
+    void getCompactMessages_AuthenticatedUser_ReturnsCompactPage() {
+        MessagePageDto page = MessagePageDto.builder()
+                .items(List.of(MessageItemDto.builder().content("Hello").sender("U").createdAt(1_700_000_000_000L).build()))
+                .cursor("next-cursor")
+                .build();
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        when(messageService.getCompactMessages(user.userId(), "", 20)).thenReturn(page);
 
-        InvalidJwtTokenException exception = assertThrows(InvalidJwtTokenException.class, () ->
-            messageController.createMessages(messageRequestDto));
+        ResponseEntity<MessagePageDto> result = messageController.getCompactMessages(user, "", 20, webRequest);
 
-        assertEquals(errorMessage, exception.getMessage());
-        verify(messageService, times(1)).createMessages(messageRequestDto);
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertSame(page, result.getBody());
+        assertTrue(response.getHeader(HttpHeaders.ETAG).startsWith(HISTORY_ETAG_PREFIX));
     }
 
     @Test
-    void createMessages_NullToken_ThrowsValidationException() {
-        MessageRequestDto invalidRequest = MessageRequestDto.builder()
-                .content("Valid content")
-                .token(null)
+    void getCompactMessages_IfNoneMatchCurrent_NotModifiedWithoutLoadingPage() {
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH,
+                eTagOf(web -> messageController.getCompactMessages(user, "", 20, web)));
+
+        assertNull(messageController.getCompactMessages(user, "", 20, webRequest));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        // Only by the unconditional request that handed out the ETag
+        verify(messageService, times(1)).getCompactMessages(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void getMessagesByCursor_DifferentPageSizeViewOrRepresentation_DifferentETags() {
+        when(messageService.getHistoryVersion(user.userId())).thenReturn(HISTORY_VERSION);
+        when(messageService.getMessagesByCursor(eq(user.userId()), anyString(), anyInt()))
+                .thenReturn(ChatHistoryResponseDto.builder().messages(List.of()).build());
+        when(messageService.getCompactMessages(eq(user.userId()), anyString(), anyInt()))
+                .thenReturn(MessagePageDto.builder().items(List.of()).build());
+
+        List<String> eTags = List.of(
+                eTagOf(web -> messageController.getMessagesByCursor(user, "", 20, web)),
+                eTagOf(web -> messageController.getMessagesByCursor(user, "next-cursor", 20, web)),
+                eTagOf(web -> messageController.getMessagesByCursor(user, "", 50, web)),
+                eTagOf(web -> messageController.getCompactMessages(user, "", 20, web)),
+                eTagOf(MediaType.APPLICATION_CBOR_VALUE, web -> messageController.getMessagesByCursor(user, "", 20, web)));
+
+        assertEquals(eTags.size(), Set.copyOf(eTags).size(), "ETags should all differ: " + eTags);
+        eTags.forEach(eTag -> assertTrue(eTag.startsWith(HISTORY_ETAG_PREFIX), eTag));
+        assertEquals(eTags.getFirst(), eTagOf("application/cbor;q=0.5, application/json",
+                web -> messageController.getMessagesByCursor(user, "", 20, web)));
+    }
+
+    @Test
+    void getMessagesSince_AuthenticatedUser_ReturnsNewerMessages() {
+        MessageSyncResponseDto sync = MessageSyncResponseDto.builder()
+                .messages(messagePage.getContent())
+                .cursor("sync-cursor")
+                .hasMore(false)
                 .build();
+        when(messageService.getMessagesSince(user.userId(), "previous-cursor", 20)).thenReturn(sync);
 
-        when(messageService.createMessages(invalidRequest))
-                .thenThrow(new IllegalArgumentException("Token cannot be null"));
+        ResponseEntity<MessageSyncResponseDto> response = messageController.getMessagesSince(user, "previous-cursor", 20);
 
-        assertThrows(IllegalArgumentException.class, () ->
-            messageController.createMessages(invalidRequest));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(sync, response.getBody());
     }
 
-    @ParameterizedTest
-    @ValueSource(strings = {"JWT token has expired", "JWT token cannot be null or empty"})
-    void getMessages_InvalidToken_ThrowsInvalidJwtTokenException(String errorMessage) {
-        when(messageService.getMessages(anyString(), eq(pageable)))
-                .thenThrow(new InvalidJwtTokenException(errorMessage));
+    @Test
+    void createMessages_ValidRequest_ReturnsAcceptedMessageId() {
+        when(messageService.createMessages(user.userId(), messageRequestDto))
+                .thenReturn(messageAcceptedDto);
+
+        ResponseEntity<MessageAcceptedDto> response = messageController.createMessages(user, messageRequestDto);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("msg-user-123", response.getBody().getMessageId());
 
-        InvalidJwtTokenException exception = assertThrows(InvalidJwtTokenException.class, () ->
-            messageController.getMessages("invalid-token", pageable));
+        verify(messageService, times(1)).createMessages(user.userId(), messageRequestDto);
+    }
+
+    @Test
+    void streamMessages_ValidRequest_ReturnsServiceEmitter() {
+        SseEmitter emitter = new SseEmitter();
+        when(messageService.streamMessages(user.userId(), messageRequestDto)).thenReturn(emitter);
+
+        SseEmitter response = messageController.streamMessages(user, messageRequestDto);
+
+        assertSame(emitter, response);
+        verify(messageService, times(1)).streamMessages(user.userId(), messageRequestDto);
+    }
+
+    /**
+     * The ETag an unconditional request for the same page is given
+     */
+    private static String eTagOf(Consumer<ServletWebRequest> call) {
+        return eTagOf(null, call);
+    }
 
-        assertEquals(errorMessage, exception.getMessage());
-        verify(messageService, times(1)).getMessages(anyString(), eq(pageable));
+    private static String eTagOf(String accept, Consumer<ServletWebRequest> call) {
+        MockHttpServletRequest firstRequest = new MockHttpServletRequest("GET", "/smart_buddy/chatroom/chat-history");
+        if (accept != null) {
+            firstRequest.addHeader(HttpHeaders.ACCEPT, accept);
+        }
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        call.accept(new ServletWebRequest(firstRequest, firstResponse));
+        return firstResponse.getHeader(HttpHeaders.ETAG);
     }
 }
@@ -0,0 +1,158 @@
+package com.hkust.smart_buddy.chatroom.repository;
+
+import com.hkust.smart_buddy.common.constants.DatabaseConstants;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN against a real MySQL so the build fails if the chat history
+ * queries stop being served by the (USERID, CREATED_DT, RECORD_ID) index.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MessageHistoryIndexTest {
+
+    private static final int USER_COUNT = 20;
+    private static final int MESSAGES_PER_USER = 200;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.4");
+
+    // Same SQL shape Hibernate generates for findByUserIdOrderByCreatedDateDescRecordIdDesc
+    private static final String FIRST_PAGE_SQL =
+            "EXPLAIN SELECT * FROM MESSAGE WHERE USERID = ? "
+            + "ORDER BY CREATED_DT DESC, RECORD_ID DESC LIMIT 21";
+
+    // Same SQL shape Hibernate generates for findByUserIdBeforeCursor
+    private static final String NEXT_PAGE_SQL =
+            "EXPLAIN SELECT * FROM MESSAGE WHERE USERID = ? "
+            + "AND (CREATED_DT < ? OR (CREATED_DT = ? AND RECORD_ID < ?)) "
+            + "ORDER BY CREATED_DT DESC, RECORD_ID DESC LIMIT 21";
+
+    // Same SQL shape Hibernate generates for findTurnsByUserIdOrderByCreatedDateDescRecordIdDesc
+    private static final String CONTEXT_WINDOW_SQL =
+            "EXPLAIN SELECT CONTENT, SENDER, CREATED_DT FROM MESSAGE WHERE USERID = ? "
+            + "ORDER BY CREATED_DT DESC, RECORD_ID DESC LIMIT 11";
+
+    // Same SQL shape Hibernate generates for findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc
+    private static final String ARCHIVE_SCAN_SQL =
+            "EXPLAIN SELECT * FROM MESSAGE WHERE CREATED_DT < ? "
+            + "ORDER BY CREATED_DT ASC, RECORD_ID ASC LIMIT 500";
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword())
+                .load()
+                .migrate();
+
+        try (Connection connection = openConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement user = connection.prepareStatement(
+                    "INSERT INTO USER (USERID, USERNAME, PASSWORD, EMAIL) VALUES (?, ?, 'x', 'x@test.com')");
+                 PreparedStatement message = connection.prepareStatement(
+                    "INSERT INTO MESSAGE (MESSAGEID, USERID, CONTENT, SENDER, CREATED_DT) VALUES (?, ?, 'hello', 'U', ?)")) {
+                LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+                for (int u = 0; u < USER_COUNT; u++) {
+                    String userId = "user-" + u;
+                    user.setString(1, userId);
+                    user.setString(2, "username-" + u);
+                    user.executeUpdate();
+                    for (int m = 0; m < MESSAGES_PER_USER; m++) {
+                        message.setString(1, userId + "-msg-" + m);
+                        message.setString(2, userId);
+                        message.setTimestamp(3, Timestamp.valueOf(start.plusMinutes(m)));
+                        message.addBatch();
+                    }
+                    message.executeBatch();
+                }
+            }
+            connection.commit();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE TABLE MESSAGE");
+            }
+        }
+    }
+
+    @Test
+    void firstPageQuery_UsesHistoryIndexWithoutFilesort() throws SQLException {
+        try (Connection connection = openConnection();
+             PreparedStatement explain = connection.prepareStatement(FIRST_PAGE_SQL)) {
+            explain.setString(1, "user-7");
+            assertUsesHistoryIndex(explain);
+        }
+    }
+
+    @Test
+    void nextPageQuery_UsesHistoryIndexWithoutFilesort() throws SQLException {
+        Timestamp cursorTime = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 1, 40));
+        try (Connection connection = openConnection();
+             PreparedStatement explain = connection.prepareStatement(NEXT_PAGE_SQL)) {
+            explain.setString(1, "user-7");
+            explain.setTimestamp(2, cursorTime);
+            explain.setTimestamp(3, cursorTime);
+            explain.setLong(4, 1500L);
+            assertUsesHistoryIndex(explain);
+        }
+    }
+
+    @Test
+    void contextWindowQuery_UsesHistoryIndexWithoutFilesort() throws SQLException {
+        try (Connection connection = openConnection();
+             PreparedStatement explain = connection.prepareStatement(CONTEXT_WINDOW_SQL)) {
+            explain.setString(1, "user-7");
+            assertUsesHistoryIndex(explain);
+        }
+    }
+
+    @Test
+    void archiveScanQuery_UsesCreatedDateIndexWithoutFilesort() throws SQLException {
+        try (Connection connection = openConnection();
+             PreparedStatement explain = connection.prepareStatement(ARCHIVE_SCAN_SQL)) {
+            explain.setTimestamp(1, Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 2, 0)));
+            assertUsesIndex(explain, DatabaseConstants.MESSAGE_CREATED_DT_INDEX);
+        }
+    }
+
+    @Test
+    void messageIdIndex_RejectsDuplicates() throws SQLException {
+        try (Connection connection = openConnection();
+             PreparedStatement duplicate = connection.prepareStatement(
+                    "INSERT INTO MESSAGE (MESSAGEID, USERID, CONTENT, SENDER) VALUES ('user-0-msg-0', 'user-0', 'dup', 'U')")) {
+            assertThrows(SQLException.class, duplicate::executeUpdate);
+        }
+    }
+
+    private static void assertUsesHistoryIndex(PreparedStatement explain) throws SQLException {
+        assertUsesIndex(explain, DatabaseConstants.MESSAGE_USER_HISTORY_INDEX);
+    }
+
+    private static void assertUsesIndex(PreparedStatement explain, String index) throws SQLException {
+        try (ResultSet plan = explain.executeQuery()) {
+            assertTrue(plan.next(), "EXPLAIN returned no plan rows");
+            String key = plan.getString("key");
+            String extra = plan.getString("Extra");
+            assertEquals(index, key, "Query is not using " + index + ", plan extra: " + extra);
+            assertFalse(extra != null && extra.contains("Using filesort"),
+                    "Query needs a filesort, plan extra: " + extra);
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+    }
+}
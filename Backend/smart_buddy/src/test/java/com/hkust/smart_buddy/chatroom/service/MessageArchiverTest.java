@@ -0,0 +1,122 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageArchiverTest {
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private MessageArchiveRepository messageArchiveRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageArchiver messageArchiver;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (messageArchiver != null) {
+            messageArchiver.shutdown();
+        }
+    }
+
+    @Test
+    void archiveOldMessages_Backlog_MovesBatchesUntilShortBatch() throws InterruptedException {
+        messageArchiver = archiver(3, 10);
+        when(messageRepository.findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(any(), eq(PageRequest.of(0, 3))))
+                .thenReturn(messages(1, 3), messages(4, 6), messages(7, 7));
+
+        int moved = messageArchiver.archiveOldMessages();
+
+        assertEquals(7, moved);
+        verify(messageArchiveRepository, times(3)).moveToArchive(anyList(), any());
+        assertEquals(7, meterRegistry.get(MetricsConstants.MESSAGE_ARCHIVED).counter().count());
+    }
+
+    @Test
+    void archiveOldMessages_BacklogBeyondRunLimit_StopsAfterMaxBatches() throws InterruptedException {
+        messageArchiver = archiver(2, 2);
+        when(messageRepository.findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(any(), any()))
+                .thenReturn(messages(1, 2), messages(3, 4), messages(5, 6));
+
+        int moved = messageArchiver.archiveOldMessages();
+
+        assertEquals(4, moved);
+        verify(messageArchiveRepository, times(2)).moveToArchive(anyList(), any());
+    }
+
+    @Test
+    void archiveOldMessages_NothingOldEnough_MovesNothing() throws InterruptedException {
+        messageArchiver = archiver(2, 2);
+        when(messageRepository.findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(any(), any()))
+                .thenReturn(List.of());
+
+        assertEquals(0, messageArchiver.archiveOldMessages());
+        verifyNoInteractions(messageArchiveRepository);
+    }
+
+    @Test
+    void archiveOldMessages_CutoffIsMinimumAge() throws InterruptedException {
+        messageArchiver = archiver(2, 2);
+        LocalDateTime before = LocalDateTime.now().minusDays(90);
+
+        messageArchiver.archiveOldMessages();
+
+        verify(messageRepository).findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(
+                argThat(cutoff -> !cutoff.isBefore(before) && cutoff.isBefore(before.plusMinutes(1))),
+                eq(PageRequest.of(0, 2)));
+    }
+
+    @Test
+    void archiveOldMessages_BatchFails_Throws() {
+        messageArchiver = archiver(2, 2);
+        when(messageRepository.findByCreatedDateBeforeOrderByCreatedDateAscRecordIdAsc(any(), any()))
+                .thenReturn(messages(1, 2));
+        doThrow(new DataIntegrityViolationException("Already archived"))
+                .when(messageArchiveRepository).moveToArchive(anyList(), any());
+
+        assertThrows(DataIntegrityViolationException.class, () -> messageArchiver.archiveOldMessages());
+        assertEquals(0, meterRegistry.get(MetricsConstants.MESSAGE_ARCHIVED).counter().count());
+    }
+
+    // Scheduling is off, so runs happen only when a test calls archiveOldMessages
+    private MessageArchiver archiver(int batchSize, int maxBatchesPerRun) {
+        return new MessageArchiver(messageRepository, messageArchiveRepository, false, 90, batchSize,
+                maxBatchesPerRun, 0, 60, meterRegistry);
+    }
+
+    private static List<Message> messages(long firstRecordId, long lastRecordId) {
+        return LongStream.rangeClosed(firstRecordId, lastRecordId)
+                .mapToObj(recordId -> Message.builder()
+                        .recordId(recordId)
+                        .messageId("msg-" + recordId)
+                        .userId("user-123")
+                        .content("message " + recordId)
+                        .sender(MessageConstants.SENDER_USER)
+                        .createdDate(OLD.plusSeconds(recordId))
+                        .build())
+                .toList();
+    }
+}
@@ -1,36 +1,50 @@
 package com.hkust.smart_buddy.chatroom.service;
 
+import com.hkust.smart_buddy.chatroom.advice.AdvicePipeline;
 import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import com.hkust.smart_buddy.chatroom.dto.ChatHistoryResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageAcceptedDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageItemDto;
+import com.hkust.smart_buddy.chatroom.dto.MessagePageDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageRequestDto;
 import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageSyncResponseDto;
+import com.hkust.smart_buddy.chatroom.event.AiReplyEvent;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
 import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.service.RecentHistoryCache.HistoryEntry;
+import com.hkust.smart_buddy.chatroom.service.RecentHistoryCache.RecentHistory;
 import com.hkust.smart_buddy.common.constants.DatabaseConstants;
-import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.constants.PaginationConstants;
 import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
-import com.hkust.smart_buddy.common.exception.InvalidJwtTokenException;
-import com.hkust.smart_buddy.common.util.JwtUtil;
-import com.hkust.smart_buddy.common.util.UuidUtil;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
+import com.hkust.smart_buddy.chatroom.exception.AdviceQueueFullException;
+import com.hkust.smart_buddy.common.exception.InvalidCursorException;
+import com.hkust.smart_buddy.common.util.CursorUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,30 +53,38 @@ import static org.mockito.Mockito.*;
 class MessageServiceTest {
 
     @Mock
-    private JwtUtil jwtUtil;
+    private MessageRepository messageRepository;
 
     @Mock
-    private MessageRepository messageRepository;
+    private MessageArchiveRepository messageArchiveRepository;
+
+    @Mock
+    private AdvicePipeline advicePipeline;
+
+    @Mock
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @Mock
+    private RecentHistoryCache recentHistoryCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private MessageService messageService;
 
-    private String validToken;
     private String userId;
     private MessageRequestDto messageRequestDto;
     private Message userMessage;
     private Message aiMessage;
-    private Claims claims;
     private Pageable pageable;
 
     @BeforeEach
     void setUp() {
-        validToken = "valid-jwt-token";
         userId = "user-123-uuid";
 
         messageRequestDto = MessageRequestDto.builder()
                 .content("I want to travel to Japan")
-                .token(validToken)
                 .build();
 
         userMessage = Message.builder()
@@ -89,49 +111,43 @@ class MessageServiceTest {
                 .recordVersion(DatabaseConstants.DEFAULT_RECORD_VERSION)
                 .build();
 
-        Map<String, Object> claimsMap = new HashMap<>();
-        claimsMap.put(JwtConstants.USER_ID_CLAIM, userId);
-        claims = Jwts.claims(claimsMap);
-
         pageable = PageRequest.of(0, 10);
     }
 
     @Test
-    void getMessages_ValidToken_ReturnsMessagePageWithCorrectPagination() {
+    void getMessages_ValidUser_ReturnsMessagePageWithCorrectPagination() {
         List<Message> messageList = Arrays.asList(userMessage, aiMessage);
-        Page<Message> messagePage = new PageImpl<>(messageList, pageable, 15);
+        Pageable fullPage = PageRequest.of(0, 2);
 
-        when(jwtUtil.decodeToken(validToken)).thenReturn(claims);
-        when(messageRepository.findByUserIdOrderByCreatedDateDesc(userId, pageable))
-                .thenReturn(messagePage);
+        bypassHistoryCache();
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, fullPage))
+                .thenReturn(messageList);
+        when(messageRepository.countByUserId(userId)).thenReturn(15L);
 
-        Page<MessageResponseDto> result = messageService.getMessages(validToken, pageable);
+        Page<MessageResponseDto> result = messageService.getMessages(userId, fullPage);
 
         assertNotNull(result);
         assertEquals(2, result.getContent().size());
         assertEquals(15, result.getTotalElements());
-        assertEquals(2, result.getTotalPages());
+        assertEquals(8, result.getTotalPages());
         assertEquals(0, result.getNumber());
-        assertEquals(10, result.getSize());
+        assertEquals(2, result.getSize());
 
         assertEquals("I want to travel to Japan", result.getContent().get(0).getContent());
         assertEquals(MessageConstants.SENDER_USER, result.getContent().get(0).getSender());
         assertEquals(MessageConstants.AI_ADVICE_PREFIX + "I want to travel to Japan", result.getContent().get(1).getContent());
         assertEquals(MessageConstants.SENDER_AI, result.getContent().get(1).getSender());
 
-        verify(jwtUtil, times(1)).decodeToken(validToken);
-        verify(messageRepository, times(1)).findByUserIdOrderByCreatedDateDesc(userId, pageable);
+        verify(messageRepository, times(1)).findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, fullPage);
     }
 
     @Test
     void getMessages_EmptyResult_ReturnsEmptyPageWithCorrectPagination() {
-        Page<Message> emptyPage = new PageImpl<>(List.of(), pageable, 0);
-
-        when(jwtUtil.decodeToken(validToken)).thenReturn(claims);
-        when(messageRepository.findByUserIdOrderByCreatedDateDesc(userId, pageable))
-                .thenReturn(emptyPage);
+        bypassHistoryCache();
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, pageable))
+                .thenReturn(List.of());
 
-        Page<MessageResponseDto> result = messageService.getMessages(validToken, pageable);
+        Page<MessageResponseDto> result = messageService.getMessages(userId, pageable);
 
         assertNotNull(result);
         assertTrue(result.getContent().isEmpty());
@@ -140,86 +156,482 @@ class MessageServiceTest {
         assertEquals(0, result.getNumber());
         assertEquals(10, result.getSize());
 
-        verify(jwtUtil, times(1)).decodeToken(validToken);
-        verify(messageRepository, times(1)).findByUserIdOrderByCreatedDateDesc(userId, pageable);
+        verify(messageRepository, times(1)).findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, pageable);
+        verify(messageRepository, never()).countByUserId(anyString());
+    }
+
+    @Test
+    void getMessagesByCursor_FirstPageWithMoreRows_ReturnsNextCursorOfLastRow() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Message> rows = List.of(
+                Message.builder().recordId(30L).userId(userId).content("third").sender(MessageConstants.SENDER_AI).createdDate(now).build(),
+                Message.builder().recordId(29L).userId(userId).content("second").sender(MessageConstants.SENDER_USER).createdDate(now).build(),
+                Message.builder().recordId(28L).userId(userId).content("first").sender(MessageConstants.SENDER_AI).createdDate(now.minusSeconds(1)).build());
+
+        bypassHistoryCache();
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, PageRequest.of(0, 3)))
+                .thenReturn(rows);
+
+        ChatHistoryResponseDto result = messageService.getMessagesByCursor(userId, "", 2);
+
+        assertEquals(2, result.getMessages().size());
+        assertEquals("third", result.getMessages().get(0).getContent());
+        assertEquals("second", result.getMessages().get(1).getContent());
+        assertTrue(result.isHasMore());
+        assertEquals(CursorUtil.encode(now, 29L), result.getNextCursor());
+        assertEquals(CursorUtil.encode(now, 30L), result.getSyncCursor());
+
+        verify(messageRepository, never()).countByUserId(anyString());
+    }
+
+    @Test
+    void getMessagesByCursor_LastPage_ReturnsNoNextCursor() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        String cursor = CursorUtil.encode(now, 29L);
+        List<Message> rows = List.of(
+                Message.builder().recordId(28L).userId(userId).content("first").sender(MessageConstants.SENDER_AI).createdDate(now.minusSeconds(1)).build());
+
+        when(messageRepository.findByUserIdBeforeCursor(userId, now, 29L, PageRequest.of(0, 3)))
+                .thenReturn(rows);
+
+        ChatHistoryResponseDto result = messageService.getMessagesByCursor(userId, cursor, 2);
+
+        assertEquals(1, result.getMessages().size());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextCursor());
+        assertNull(result.getSyncCursor());
+    }
+
+    @Test
+    void getMessages_PagePastHotTier_ContinuesInArchive() {
+        Pageable secondPage = PageRequest.of(1, 10);
+        LocalDateTime old = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Message archived = Message.builder().recordId(3L).messageId("msg-3").userId(userId).content("archived")
+                .sender(MessageConstants.SENDER_USER).createdDate(old).build();
+
+        bypassHistoryCache();
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, secondPage))
+                .thenReturn(List.of(userMessage, aiMessage));
+        when(messageArchiveRepository.findByUserIdNewestFirst(userId, 0, 8))
+                .thenReturn(List.of(MessageArchive.of(archived, old)));
+        when(messageArchiveRepository.countByUserId(userId)).thenReturn(1L);
+
+        Page<MessageResponseDto> result = messageService.getMessages(userId, secondPage);
+
+        assertEquals(List.of("I want to travel to Japan", MessageConstants.AI_ADVICE_PREFIX + "I want to travel to Japan",
+                "archived"), result.getContent().stream().map(MessageResponseDto::getContent).toList());
+        assertEquals(13, result.getTotalElements());
+    }
+
+    @Test
+    void getMessages_PageEntirelyInArchive_SkipsHotMessages() {
+        Pageable thirdPage = PageRequest.of(2, 10);
+
+        bypassHistoryCache();
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, thirdPage))
+                .thenReturn(List.of());
+        when(messageRepository.countByUserId(userId)).thenReturn(12L);
+        when(messageArchiveRepository.countByUserId(userId)).thenReturn(30L);
+
+        Page<MessageResponseDto> result = messageService.getMessages(userId, thirdPage);
+
+        verify(messageArchiveRepository).findByUserIdNewestFirst(userId, 8, 10);
+        assertEquals(42, result.getTotalElements());
+    }
+
+    @Test
+    void getMessagesByCursor_HotTierExhausted_ContinuesInArchive() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        String cursor = CursorUtil.encode(now, 29L);
+        Message hot = Message.builder().recordId(28L).userId(userId).content("hot").sender(MessageConstants.SENDER_AI)
+                .createdDate(now.minusSeconds(1)).build();
+        Message archived = Message.builder().recordId(5L).messageId("msg-5").userId(userId).content("archived")
+                .sender(MessageConstants.SENDER_USER).createdDate(now.minusDays(100)).build();
+
+        when(messageRepository.findByUserIdBeforeCursor(userId, now, 29L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(hot));
+        when(messageArchiveRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(userId, PageRequest.of(0, 2)))
+                .thenReturn(List.of(MessageArchive.of(archived, now), MessageArchive.of(archived, now)));
+
+        ChatHistoryResponseDto result = messageService.getMessagesByCursor(userId, cursor, 2);
+
+        assertEquals(List.of("hot", "archived"),
+                result.getMessages().stream().map(MessageResponseDto::getContent).toList());
+        assertTrue(result.isHasMore());
+        assertEquals(CursorUtil.encode(now.minusDays(100), 5L), result.getNextCursor());
+    }
+
+    @Test
+    void getMessagesByCursor_CursorInsideArchive_ReadsArchiveOnly() {
+        LocalDateTime old = LocalDateTime.of(2024, 1, 1, 12, 0);
+        String cursor = CursorUtil.encode(old, 5L);
+
+        when(messageRepository.findByUserIdBeforeCursor(userId, old, 5L, PageRequest.of(0, 3)))
+                .thenReturn(List.of());
+
+        ChatHistoryResponseDto result = messageService.getMessagesByCursor(userId, cursor, 2);
+
+        verify(messageArchiveRepository).findByUserIdBeforeCursor(userId, old, 5L, PageRequest.of(0, 3));
+        assertTrue(result.getMessages().isEmpty());
+        assertFalse(result.isHasMore());
+    }
+
+    @Test
+    void getMessagesSince_MoreThanLimit_ReturnsOldestFirstWithCursorOfLastRow() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        String cursor = CursorUtil.encode(now, 28L);
+        List<Message> rows = List.of(
+                Message.builder().recordId(29L).userId(userId).content("second").sender(MessageConstants.SENDER_USER).createdDate(now).build(),
+                Message.builder().recordId(30L).userId(userId).content("third").sender(MessageConstants.SENDER_AI).createdDate(now).build(),
+                Message.builder().recordId(31L).userId(userId).content("fourth").sender(MessageConstants.SENDER_USER).createdDate(now.plusSeconds(1)).build());
+
+        when(messageRepository.findByUserIdAfterCursor(userId, now, 28L, PageRequest.of(0, 3)))
+                .thenReturn(rows);
+
+        MessageSyncResponseDto result = messageService.getMessagesSince(userId, cursor, 2);
+
+        assertEquals(List.of("second", "third"), result.getMessages().stream().map(MessageResponseDto::getContent).toList());
+        assertTrue(result.isHasMore());
+        assertEquals(CursorUtil.encode(now, 30L), result.getCursor());
     }
 
     @Test
-    void createMessages_ValidRequest_SavesMessagesAndReturnsAiResponse() {
-        try (MockedStatic<UuidUtil> mockedUuidUtil = mockStatic(UuidUtil.class)) {
-            mockedUuidUtil.when(() -> UuidUtil.generateUniqueId(any()))
-                    .thenReturn("msg-user-123")
-                    .thenReturn("msg-ai-123");
+    void getMessagesSince_NothingNew_ReturnsSameCursor() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        String cursor = CursorUtil.encode(now, 28L);
+        when(messageRepository.findByUserIdAfterCursor(userId, now, 28L, PageRequest.of(0, 21)))
+                .thenReturn(List.of());
+
+        MessageSyncResponseDto result = messageService.getMessagesSince(userId, cursor, 20);
 
-            when(jwtUtil.decodeToken(validToken)).thenReturn(claims);
+        assertTrue(result.getMessages().isEmpty());
+        assertFalse(result.isHasMore());
+        assertEquals(cursor, result.getCursor());
+    }
 
-            MessageResponseDto result = messageService.createMessages(messageRequestDto);
+    @Test
+    void getMessagesSince_BlankCursorAndOversizedLimit_SyncsFromStartWithinHardCap() {
+        when(messageRepository.findByUserIdOrderByCreatedDateAscRecordIdAsc(userId,
+                PageRequest.of(0, PaginationConstants.MAX_PAGE_SIZE + 1)))
+                .thenReturn(List.of(userMessage));
 
-            assertNotNull(result);
-            assertEquals(MessageConstants.AI_ADVICE_PREFIX + "I want to travel to Japan", result.getContent());
-            assertEquals(MessageConstants.SENDER_AI, result.getSender());
-            assertNotNull(result.getCreatedDateTime());
+        MessageSyncResponseDto result = messageService.getMessagesSince(userId, "", 10_000);
 
-            verify(jwtUtil, times(1)).decodeToken(validToken);
-            verify(messageRepository, times(2)).saveAndFlush(any(Message.class));
-        }
+        assertEquals(1, result.getMessages().size());
+        assertFalse(result.isHasMore());
+        verify(messageRepository, never()).findByUserIdAfterCursor(anyString(), any(), any(), any());
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"JWT token has expired", "JWT token signature is invalid"})
-    void createMessages_InvalidToken_ThrowsInvalidJwtTokenException(String errorMessage) {
-        when(jwtUtil.decodeToken(validToken))
-                .thenThrow(new InvalidJwtTokenException(errorMessage));
+    @ValueSource(strings = {"not-a-cursor", "bm8tc2VwYXJhdG9y", "MjAyNS0wMS0wMXxhYmM"})
+    void getMessagesByCursor_InvalidCursor_ThrowsInvalidCursorException(String cursor) {
+        assertThrows(InvalidCursorException.class, () ->
+            messageService.getMessagesByCursor(userId, cursor, 10));
+
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void createMessages_ValidRequest_SavesUserMessageAndReturnsAcceptedMessageId() {
+        writeInline();
+        runPipelineInline();
+
+        MessageAcceptedDto result = messageService.createMessages(userId, messageRequestDto);
+
+        assertNotNull(result);
+        assertNotNull(result.getMessageId());
+
+        verify(advicePipeline, times(1)).submit(any(), eq(userId), eq("I want to travel to Japan"), any());
+        verify(messageWriteBuffer, times(2)).write(any(Message.class));
+        verify(messageRepository, never()).findByMessageId(anyString());
+    }
+
+    @Test
+    void createMessages_AdviceReady_SavesAiMessageWithAdviceContent() {
+        List<Message> savedMessages = new ArrayList<>();
+        when(messageWriteBuffer.write(any(Message.class))).thenAnswer(invocation -> {
+            savedMessages.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(invocation.getArgument(0));
+        });
+        runPipelineInline();
+
+        MessageAcceptedDto result = messageService.createMessages(userId, messageRequestDto);
+
+        assertEquals(2, savedMessages.size());
+        assertEquals(MessageConstants.SENDER_USER, savedMessages.get(0).getSender());
+        assertEquals(result.getMessageId(), savedMessages.get(0).getMessageId());
+        assertEquals(MessageConstants.SENDER_AI, savedMessages.get(1).getSender());
+        assertEquals(MessageConstants.AI_ADVICE_PREFIX + "I want to travel to Japan", savedMessages.get(1).getContent());
+    }
+
+    @Test
+    void createMessages_AdviceReady_PublishesReplyForSocketPush() {
+        writeInline();
+        runPipelineInline();
+
+        messageService.createMessages(userId, messageRequestDto);
+
+        ArgumentCaptor<AiReplyEvent> event = ArgumentCaptor.forClass(AiReplyEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(userId, event.getValue().userId());
+        assertEquals(MessageConstants.SENDER_AI, event.getValue().message().getSender());
+        assertEquals(MessageConstants.AI_ADVICE_PREFIX + "I want to travel to Japan", event.getValue().message().getContent());
+    }
 
-        InvalidJwtTokenException exception = assertThrows(InvalidJwtTokenException.class, () ->
-            messageService.createMessages(messageRequestDto));
+    @Test
+    void createMessages_PipelineFull_ThrowsWithoutSavingUserMessage() {
+        when(advicePipeline.submit(any(), anyString(), anyString(), any()))
+                .thenThrow(new AdviceQueueFullException(MessageConstants.ADVICE_QUEUE_FULL));
 
-        assertEquals(errorMessage, exception.getMessage());
+        assertThrows(AdviceQueueFullException.class, () ->
+            messageService.createMessages(userId, messageRequestDto));
 
-        verify(jwtUtil, times(1)).decodeToken(validToken);
-        verify(messageRepository, never()).saveAndFlush(any(Message.class));
+        verify(messageWriteBuffer, never()).write(any(Message.class));
     }
 
     @ParameterizedTest
     @ValueSource(strings = {"What are the best beaches in Thailand?", "Recommend restaurants in Paris", "Best hiking trails in Switzerland"})
-    void createMessages_DifferentContent_GeneratesCorrectAiResponse(String content) {
+    void createMessages_DifferentContent_SubmitsContentToPipeline(String content) {
         MessageRequestDto customRequest = MessageRequestDto.builder()
                 .content(content)
-                .token(validToken)
                 .build();
 
-        try (MockedStatic<UuidUtil> mockedUuidUtil = mockStatic(UuidUtil.class)) {
-            mockedUuidUtil.when(() -> UuidUtil.generateUniqueId(any()))
-                    .thenReturn("msg-custom-123")
-                    .thenReturn("msg-ai-custom-123");
-
-            when(jwtUtil.decodeToken(validToken)).thenReturn(claims);
+        writeInline();
+        runPipelineInline();
 
-            MessageResponseDto result = messageService.createMessages(customRequest);
+        MessageAcceptedDto result = messageService.createMessages(userId, customRequest);
 
-            assertNotNull(result);
-            assertEquals(MessageConstants.AI_ADVICE_PREFIX + content, result.getContent());
-            assertEquals(MessageConstants.SENDER_AI, result.getSender());
+        assertNotNull(result.getMessageId());
 
-            verify(jwtUtil, times(1)).decodeToken(validToken);
-            verify(messageRepository, times(2)).saveAndFlush(any(Message.class));
-        }
+        verify(advicePipeline, times(1)).submit(any(), eq(userId), eq(content), any());
+        verify(messageWriteBuffer, times(2)).write(any(Message.class));
     }
 
     @Test
     void createMessages_RepositoryException_ThrowsException() {
-        try (MockedStatic<UuidUtil> mockedUuidUtil = mockStatic(UuidUtil.class)) {
-            mockedUuidUtil.when(() -> UuidUtil.generateUniqueId(any())).thenReturn("msg-123");
+        doThrow(new RuntimeException("Database error"))
+                .when(messageWriteBuffer).write(any(Message.class));
+        runPipelineInline();
+
+        assertThrows(RuntimeException.class, () ->
+            messageService.createMessages(userId, messageRequestDto));
+
+        verify(messageWriteBuffer, times(1)).write(any(Message.class));
+    }
+
+    @Test
+    void streamMessages_AdviceStreamed_PersistsAssembledAiMessageOnce() {
+        List<Message> savedMessages = new ArrayList<>();
+        when(messageWriteBuffer.write(any(Message.class))).thenAnswer(invocation -> {
+            savedMessages.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(invocation.getArgument(0));
+        });
+        when(advicePipeline.submitStreaming(any(), anyString(), anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            Supplier<?> onAdmitted = invocation.getArgument(0);
+            Object admitted = onAdmitted.get();
+            Consumer<String> onChunk = invocation.getArgument(3);
+            onChunk.accept(MessageConstants.AI_ADVICE_PREFIX);
+            onChunk.accept(invocation.getArgument(2));
+            Consumer<String> onAdvice = invocation.getArgument(4);
+            onAdvice.accept(MessageConstants.AI_ADVICE_PREFIX + invocation.getArgument(2));
+            return admitted;
+        });
+
+        SseEmitter emitter = messageService.streamMessages(userId, messageRequestDto);
+
+        assertNotNull(emitter);
+        assertEquals(2, savedMessages.size());
+        assertEquals(MessageConstants.SENDER_USER, savedMessages.get(0).getSender());
+        assertEquals(MessageConstants.SENDER_AI, savedMessages.get(1).getSender());
+        assertEquals(MessageConstants.AI_ADVICE_PREFIX + "I want to travel to Japan", savedMessages.get(1).getContent());
+    }
+
+    @Test
+    void streamMessages_PipelineFull_ThrowsWithoutSavingUserMessage() {
+        when(advicePipeline.submitStreaming(any(), anyString(), anyString(), any(), any(), any()))
+                .thenThrow(new AdviceQueueFullException(MessageConstants.ADVICE_QUEUE_FULL));
+
+        assertThrows(AdviceQueueFullException.class, () ->
+            messageService.streamMessages(userId, messageRequestDto));
+
+        verify(messageWriteBuffer, never()).write(any(Message.class));
+    }
+
+    @Test
+    void getMessages_PageWithinHistoryCache_ServedWithoutRepository() {
+        when(recentHistoryCache.getMessagesPerUser()).thenReturn(50);
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory(aiMessage, userMessage));
+
+        Page<MessageResponseDto> result = messageService.getMessages(userId, PageRequest.of(0, 1));
+
+        assertEquals(1, result.getContent().size());
+        assertEquals(MessageConstants.SENDER_AI, result.getContent().getFirst().getSender());
+        assertEquals(2, result.getTotalElements());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getMessagesByCursor_FirstPageWithinHistoryCache_ServedWithoutRepository() {
+        aiMessage.setRecordId(2L);
+        userMessage.setRecordId(1L);
+        when(recentHistoryCache.getMessagesPerUser()).thenReturn(50);
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory(aiMessage, userMessage));
+
+        ChatHistoryResponseDto result = messageService.getMessagesByCursor(userId, "", 1);
+
+        assertEquals(1, result.getMessages().size());
+        assertTrue(result.isHasMore());
+        assertEquals(CursorUtil.encode(aiMessage.getCreatedDate(), 2L), result.getNextCursor());
+        assertEquals(CursorUtil.encode(aiMessage.getCreatedDate(), 2L), result.getSyncCursor());
+        verifyNoInteractions(messageRepository);
+    }
 
-            when(jwtUtil.decodeToken(validToken)).thenReturn(claims);
-            when(messageRepository.saveAndFlush(any(Message.class)))
-                    .thenThrow(new RuntimeException("Database error"));
+    @Test
+    void getCompactMessages_FirstPage_EpochMillisAndNextCursorOnly() {
+        aiMessage.setRecordId(2L);
+        userMessage.setRecordId(1L);
+        when(recentHistoryCache.getMessagesPerUser()).thenReturn(50);
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory(aiMessage, userMessage));
+
+        MessagePageDto result = messageService.getCompactMessages(userId, "", 1);
+
+        assertEquals(1, result.getItems().size());
+        MessageItemDto item = result.getItems().getFirst();
+        assertEquals(aiMessage.getContent(), item.getContent());
+        assertEquals(MessageConstants.SENDER_AI, item.getSender());
+        assertEquals(aiMessage.getCreatedDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                item.getCreatedAt());
+        assertEquals(CursorUtil.encode(aiMessage.getCreatedDate(), 2L), result.getCursor());
+        assertEquals(CursorUtil.encode(aiMessage.getCreatedDate(), 2L), result.getSyncCursor());
+    }
+
+    @Test
+    void getHistoryVersion_CachedHistory_NewestRecordIdAndCount() {
+        userMessage.setRecordId(1L);
+        aiMessage.setRecordId(2L);
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory(aiMessage, userMessage));
+
+        assertEquals("2-2", messageService.getHistoryVersion(userId));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getHistoryVersion_NoMessages_Zero() {
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory());
+
+        assertEquals("0-0", messageService.getHistoryVersion(userId));
+    }
+
+    @Test
+    void createMessages_MessagesCommitted_AppendedToHistoryCache() {
+        writeInline();
+        runPipelineInline();
+
+        messageService.createMessages(userId, messageRequestDto);
+
+        verify(recentHistoryCache, times(2)).append(any(Message.class));
+    }
+
+    @Test
+    void getMessagesByCursor_PageFromCacheThenDatabase_CursorMatchesStoredSecond() {
+        List<Message> saved = savedMessages();
+        runPipelineInline();
+        messageService.createMessages(userId, messageRequestDto);
+        Message question = saved.get(0);
+        Message answer = saved.get(1);
+        // The cached copies are the committed messages, dated by the writer
+        when(recentHistoryCache.getMessagesPerUser()).thenReturn(50);
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory(answer, question));
+
+        ChatHistoryResponseDto firstPage = messageService.getMessagesByCursor(userId, "", 1);
+
+        // The row holds whole seconds, so the cursor must too for the next page to find the row's neighbours
+        LocalDateTime stored = answer.getCreatedDate();
+        assertEquals(CursorUtil.encode(stored, 2L), firstPage.getNextCursor());
+        when(messageRepository.findByUserIdBeforeCursor(userId, stored, 2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(question));
+
+        ChatHistoryResponseDto secondPage = messageService.getMessagesByCursor(userId, firstPage.getNextCursor(), 1);
+
+        assertEquals(List.of(question.getContent()),
+                secondPage.getMessages().stream().map(MessageResponseDto::getContent).toList());
+        assertFalse(secondPage.isHasMore());
+    }
+
+    @Test
+    void getMessagesSince_SyncCursorFromCachedPage_ResumesAtStoredSecond() {
+        List<Message> saved = savedMessages();
+        runPipelineInline();
+        messageService.createMessages(userId, messageRequestDto);
+        Message answer = saved.get(1);
+        when(recentHistoryCache.getMessagesPerUser()).thenReturn(50);
+        when(recentHistoryCache.get(userId)).thenReturn(cachedHistory(answer, saved.get(0)));
+        String syncCursor = messageService.getMessagesByCursor(userId, "", 20).getSyncCursor();
+        // A reply committed later in the same second sorts after the cursor on record ID, one in the next on date
+        LocalDateTime stored = answer.getCreatedDate();
+        List<Message> newer = List.of(
+                Message.builder().recordId(3L).userId(userId).content("same second").sender(MessageConstants.SENDER_USER).createdDate(stored).build(),
+                Message.builder().recordId(4L).userId(userId).content("next second").sender(MessageConstants.SENDER_AI).createdDate(stored.plusSeconds(1)).build());
+        when(messageRepository.findByUserIdAfterCursor(userId, stored, 2L, PageRequest.of(0, 21)))
+                .thenReturn(newer);
+
+        MessageSyncResponseDto result = messageService.getMessagesSince(userId, syncCursor, 20);
+
+        assertEquals(CursorUtil.encode(stored, 2L), syncCursor);
+        assertEquals(List.of("same second", "next second"),
+                result.getMessages().stream().map(MessageResponseDto::getContent).toList());
+        assertEquals(CursorUtil.encode(stored.plusSeconds(1), 4L), result.getCursor());
+    }
 
-            assertThrows(RuntimeException.class, () ->
-                messageService.createMessages(messageRequestDto));
+    private void bypassHistoryCache() {
+        when(recentHistoryCache.getMessagesPerUser()).thenReturn(0);
+    }
+
+    private RecentHistory cachedHistory(Message... newestFirst) {
+        List<HistoryEntry> entries = Arrays.stream(newestFirst)
+                .map(message -> new HistoryEntry(message.getRecordId(), message.getCreatedDate(),
+                        MessageService.convertToResponseDto(message)))
+                .toList();
+        return new RecentHistory(entries, entries.size());
+    }
+
+    /**
+     * Make the mocked write-behind buffer acknowledge every message as committed, dating it in whole seconds and
+     * assigning record IDs in order, as the real writer does
+     * @return the messages written so far
+     */
+    private List<Message> savedMessages() {
+        List<Message> saved = new ArrayList<>();
+        LocalDateTime committed = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        when(messageWriteBuffer.write(any(Message.class))).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            saved.add(message);
+            message.setCreatedDate(committed);
+            message.setLastModifiedDate(committed);
+            message.setRecordId((long) saved.size());
+            return CompletableFuture.completedFuture(message);
+        });
+        return saved;
+    }
+
+    /**
+     * Make the mocked write-behind buffer acknowledge every message as committed
+     */
+    private void writeInline() {
+        when(messageWriteBuffer.write(any(Message.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+    }
 
-            verify(jwtUtil, times(1)).decodeToken(validToken);
-            verify(messageRepository, times(1)).saveAndFlush(any(Message.class));
-        }
+    /**
+     * Make the mocked pipeline admit the request and deliver the stub advice synchronously
+     */
+    private void runPipelineInline() {
+        when(advicePipeline.submit(any(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Supplier<?> onAdmitted = invocation.getArgument(0);
+            Object admitted = onAdmitted.get();
+            Consumer<String> onAdvice = invocation.getArgument(3);
+            onAdvice.accept(MessageConstants.AI_ADVICE_PREFIX + invocation.getArgument(2));
+            return admitted;
+        });
     }
 }
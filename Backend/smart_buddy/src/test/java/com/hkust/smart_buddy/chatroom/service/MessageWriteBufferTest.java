@@ -0,0 +1,190 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.service.MessageWriteBuffer.AckMode;
+import com.hkust.smart_buddy.common.constants.DatabaseConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageWriteBufferTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (messageWriteBuffer != null) {
+            messageWriteBuffer.shutdown();
+        }
+    }
+
+    @Test
+    void write_ConcurrentDurableWrites_CoalescedIntoOneBatch() throws InterruptedException {
+        List<List<Message>> batches = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> batches.add(invocation.getArgument(0))).when(messageRepository).insertAll(anyList());
+        messageWriteBuffer = newBuffer(10, 500, AckMode.DURABLE);
+
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService requests = Executors.newFixedThreadPool(5)) {
+            for (int i = 0; i < 5; i++) {
+                String messageId = "msg-" + i;
+                requests.submit(() -> {
+                    start.await();
+                    messageWriteBuffer.write(message(messageId));
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(5, batches.getFirst().size());
+    }
+
+    @Test
+    void write_DurableMode_ReturnsOnlyAfterInsert() {
+        messageWriteBuffer = newBuffer(10, 0, AckMode.DURABLE);
+
+        messageWriteBuffer.write(message("msg-1"));
+
+        verify(messageRepository, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    void write_DurableModeInsertFails_ThrowsToCaller() {
+        doThrow(new IllegalStateException("Database down")).when(messageRepository).insertAll(anyList());
+        messageWriteBuffer = newBuffer(10, 0, AckMode.DURABLE);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            messageWriteBuffer.write(message("msg-1")));
+
+        assertEquals("Database down", exception.getMessage());
+    }
+
+    @Test
+    void write_DuplicateMessageId_RetriesRowWithNewId() {
+        List<String> attemptedIds = new ArrayList<>();
+        doAnswer(invocation -> {
+            attemptedIds.add(invocation.<List<Message>>getArgument(0).getFirst().getMessageId());
+            if (attemptedIds.size() <= 2) {
+                throw duplicateMessageId();
+            }
+            return null;
+        }).when(messageRepository).insertAll(anyList());
+        messageWriteBuffer = newBuffer(10, 0, AckMode.DURABLE);
+        Message message = message("msg-duplicate");
+
+        messageWriteBuffer.write(message);
+
+        // Batch attempt, row attempt with the original ID, then a fresh ID
+        assertEquals(List.of("msg-duplicate", "msg-duplicate"), attemptedIds.subList(0, 2));
+        assertNotEquals("msg-duplicate", attemptedIds.get(2));
+        assertEquals(attemptedIds.get(2), message.getMessageId());
+    }
+
+    @Test
+    void write_OtherConstraintViolation_FailsWithoutNewId() {
+        List<String> attemptedIds = new ArrayList<>();
+        doAnswer(invocation -> {
+            attemptedIds.add(invocation.<List<Message>>getArgument(0).getFirst().getMessageId());
+            throw violation("MESSAGE.MESSAGE_ibfk_1");
+        }).when(messageRepository).insertAll(anyList());
+        messageWriteBuffer = newBuffer(10, 0, AckMode.DURABLE);
+        Message message = message("msg-orphan");
+
+        assertThrows(DataIntegrityViolationException.class, () -> messageWriteBuffer.write(message));
+
+        // Batch attempt and row attempt only, both with the original ID
+        assertEquals(List.of("msg-orphan", "msg-orphan"), attemptedIds);
+    }
+
+    @Test
+    void write_MessageDatedEarlierCommitsLater_SortsAfterEarlierCommit() {
+        AtomicLong recordIds = new AtomicLong();
+        doAnswer(invocation -> {
+            invocation.<List<Message>>getArgument(0).forEach(row -> row.setRecordId(recordIds.incrementAndGet()));
+            return null;
+        }).when(messageRepository).insertAll(anyList());
+        messageWriteBuffer = newBuffer(10, 0, AckMode.DURABLE);
+        // Built first, by a request that only reached the queue after another request's message had committed
+        Message slow = message("msg-slow");
+        slow.setCreatedDate(LocalDateTime.now().minusMinutes(1));
+        Message fast = message("msg-fast");
+
+        messageWriteBuffer.write(fast);
+        messageWriteBuffer.write(slow);
+
+        // A sync cursor at the first commit is (fast's date, fast's record ID); the second commit must sort after it
+        assertEquals(0, slow.getCreatedDate().getNano());
+        assertFalse(slow.getCreatedDate().isBefore(fast.getCreatedDate()));
+        assertTrue(slow.getRecordId() > fast.getRecordId());
+        assertEquals(slow.getCreatedDate(), slow.getLastModifiedDate());
+    }
+
+    @Test
+    void write_BufferedMode_ReturnsBeforeInsertAndFlushesOnShutdown() throws InterruptedException {
+        CountDownLatch insertReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            insertReleased.await();
+            return null;
+        }).when(messageRepository).insertAll(anyList());
+        messageWriteBuffer = newBuffer(10, 0, AckMode.BUFFERED);
+
+        messageWriteBuffer.write(message("msg-1"));
+        messageWriteBuffer.write(message("msg-2"));
+        insertReleased.countDown();
+        messageWriteBuffer.shutdown();
+
+        verify(messageRepository, atLeastOnce()).insertAll(anyList());
+        assertThrows(IllegalStateException.class, () -> messageWriteBuffer.write(message("msg-3")));
+    }
+
+    private MessageWriteBuffer newBuffer(int flushSize, long flushIntervalMs, AckMode ackMode) {
+        return new MessageWriteBuffer(messageRepository, flushSize, flushIntervalMs, 100, ackMode,
+                new SimpleMeterRegistry());
+    }
+
+    private static DataIntegrityViolationException duplicateMessageId() {
+        return violation("MESSAGE." + DatabaseConstants.MESSAGE_ID_UNIQUE_INDEX);
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+            new ConstraintViolationException("could not execute statement", new SQLException(), constraintName));
+    }
+
+    private static Message message(String messageId) {
+        return Message.builder()
+                .messageId(messageId)
+                .userId("user-123")
+                .content("Hello")
+                .sender(MessageConstants.SENDER_USER)
+                .build();
+    }
+}
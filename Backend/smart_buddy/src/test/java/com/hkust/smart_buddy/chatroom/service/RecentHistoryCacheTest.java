@@ -0,0 +1,132 @@
+package com.hkust.smart_buddy.chatroom.service;
+
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.domain.Message;
+import com.hkust.smart_buddy.chatroom.domain.MessageArchive;
+import com.hkust.smart_buddy.chatroom.repository.MessageArchiveRepository;
+import com.hkust.smart_buddy.chatroom.repository.MessageRepository;
+import com.hkust.smart_buddy.chatroom.service.RecentHistoryCache.HistoryEntry;
+import com.hkust.smart_buddy.chatroom.service.RecentHistoryCache.RecentHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentHistoryCacheTest {
+
+    private static final String USER_ID = "user-123";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private MessageArchiveRepository messageArchiveRepository;
+
+    private RecentHistoryCache recentHistoryCache;
+
+    @BeforeEach
+    void setUp() {
+        recentHistoryCache = new RecentHistoryCache(messageRepository, messageArchiveRepository, 2, 1_000_000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void get_SecondRead_ServedWithoutRepository() {
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(message(1L)));
+
+        RecentHistory first = recentHistoryCache.get(USER_ID);
+        RecentHistory second = recentHistoryCache.get(USER_ID);
+
+        assertSame(first, second);
+        assertEquals(1, second.totalMessages());
+        verify(messageRepository, times(1)).findByUserIdOrderByCreatedDateDescRecordIdDesc(anyString(), any());
+        // Fewer rows than the limit means that is every message, so no COUNT is needed
+        verify(messageRepository, never()).countByUserId(anyString());
+    }
+
+    @Test
+    void get_FullHistory_CountsAllMessages() {
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(message(9L), message(8L)));
+        when(messageRepository.countByUserId(USER_ID)).thenReturn(9L);
+
+        RecentHistory history = recentHistoryCache.get(USER_ID);
+
+        assertEquals(List.of(9L, 8L), recordIds(history));
+        assertEquals(9, history.totalMessages());
+    }
+
+    @Test
+    void get_HotTierShort_FillsFromArchiveWithoutCount() {
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(message(5L)));
+        when(messageArchiveRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 1)))
+                .thenReturn(List.of(MessageArchive.of(message(4L), START)));
+        when(messageArchiveRepository.countByUserId(USER_ID)).thenReturn(4L);
+
+        RecentHistory history = recentHistoryCache.get(USER_ID);
+
+        assertEquals(List.of(5L, 4L), recordIds(history));
+        assertEquals("message 4", history.entries().getLast().message().getContent());
+        assertEquals(5, history.totalMessages());
+        verify(messageRepository, never()).countByUserId(anyString());
+    }
+
+    @Test
+    void append_CachedUser_KeepsNewestWithinLimit() {
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(message(2L), message(1L)));
+        when(messageRepository.countByUserId(USER_ID)).thenReturn(2L);
+        recentHistoryCache.get(USER_ID);
+
+        recentHistoryCache.append(message(3L));
+        RecentHistory history = recentHistoryCache.get(USER_ID);
+
+        assertEquals(List.of(3L, 2L), recordIds(history));
+        assertEquals(3, history.totalMessages());
+    }
+
+    @Test
+    void append_MessageAlreadyLoaded_NotCountedTwice() {
+        when(messageRepository.findByUserIdOrderByCreatedDateDescRecordIdDesc(USER_ID, PageRequest.of(0, 2)))
+                .thenReturn(List.of(message(1L)));
+        recentHistoryCache.get(USER_ID);
+
+        recentHistoryCache.append(message(1L));
+
+        assertEquals(1, recentHistoryCache.get(USER_ID).totalMessages());
+    }
+
+    @Test
+    void append_UncachedUser_LeftForNextLoad() {
+        recentHistoryCache.append(message(1L));
+
+        verifyNoInteractions(messageRepository);
+    }
+
+    private static Message message(long recordId) {
+        return Message.builder()
+                .recordId(recordId)
+                .messageId("msg-" + recordId)
+                .userId(USER_ID)
+                .content("message " + recordId)
+                .sender(MessageConstants.SENDER_USER)
+                .createdDate(START.plusSeconds(recordId))
+                .build();
+    }
+
+    private static List<Long> recordIds(RecentHistory history) {
+        return history.entries().stream().map(HistoryEntry::recordId).toList();
+    }
+}
@@ -0,0 +1,90 @@
+package com.hkust.smart_buddy.chatroom.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.dto.MessageResponseDto;
+import com.hkust.smart_buddy.chatroom.event.AiReplyEvent;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatSessionRegistryTest {
+
+    @Mock
+    private WebSocketSession phone;
+
+    @Mock
+    private WebSocketSession tablet;
+
+    @Mock
+    private WebSocketSession otherUser;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AiReplyEvent reply = new AiReplyEvent("user-123", MessageResponseDto.builder()
+            .content(MessageConstants.AI_ADVICE_PREFIX + "Kyoto")
+            .sender(MessageConstants.SENDER_AI)
+            .createdDateTime(LocalDateTime.now())
+            .build());
+    private ChatSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ChatSessionRegistry(objectMapper, meterRegistry);
+    }
+
+    @Test
+    void onAiReply_UserConnectedTwice_PushesReplyToBothSocketsOnly() throws Exception {
+        registry.register("user-123", phone);
+        registry.register("user-123", tablet);
+        registry.register("user-456", otherUser);
+
+        registry.onAiReply(reply);
+
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(phone).sendMessage(sent.capture());
+        verify(tablet).sendMessage(sent.getValue());
+        verify(otherUser, never()).sendMessage(any());
+        JsonNode frame = objectMapper.readTree(sent.getValue().getPayload());
+        assertEquals(MessageConstants.SOCKET_FRAME_REPLY, frame.path("type").asText());
+        assertEquals(MessageConstants.AI_ADVICE_PREFIX + "Kyoto", frame.path("data").path("content").asText());
+        assertEquals(3, meterRegistry.get(MetricsConstants.CHAT_SOCKET_SESSIONS).gauge().value());
+    }
+
+    @Test
+    void onAiReply_SocketUnregistered_NothingSent() throws Exception {
+        registry.register("user-123", phone);
+        registry.unregister("user-123", phone);
+
+        registry.onAiReply(reply);
+
+        verify(phone, never()).sendMessage(any());
+        assertEquals(0, meterRegistry.get(MetricsConstants.CHAT_SOCKET_SESSIONS).gauge().value());
+    }
+
+    @Test
+    void send_ClientFellBehind_CountsOverflowWithoutThrowing() throws Exception {
+        doThrow(new SessionLimitExceededException("Buffer size limit exceeded", CloseStatus.SESSION_NOT_RELIABLE))
+                .when(phone).sendMessage(any());
+
+        registry.send(phone, registry.frame(MessageConstants.SOCKET_FRAME_REPLY, "advice"));
+
+        assertEquals(1, meterRegistry.get(MetricsConstants.CHAT_SOCKET_OVERFLOWS).counter().count());
+    }
+}
@@ -0,0 +1,170 @@
+package com.hkust.smart_buddy.chatroom.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.chatroom.constants.MessageConstants;
+import com.hkust.smart_buddy.chatroom.dto.MessageAcceptedDto;
+import com.hkust.smart_buddy.chatroom.dto.MessageRequestDto;
+import com.hkust.smart_buddy.chatroom.exception.AdviceQueueFullException;
+import com.hkust.smart_buddy.chatroom.service.MessageService;
+import com.hkust.smart_buddy.common.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatWebSocketHandlerTest {
+
+    private static final int MAX_ENVELOPE_CHARS = 100;
+    private static final int MAX_MESSAGE_CHARS = MessageConstants.MAX_CONTENT_CHARS * 6 + MAX_ENVELOPE_CHARS;
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private WebSocketSession session;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AuthenticatedUser user = new AuthenticatedUser("user-123", "testuser");
+    private final Map<String, Object> attributes = new HashMap<>();
+    private ChatWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        ChatSessionRegistry registry = new ChatSessionRegistry(objectMapper, new SimpleMeterRegistry());
+        handler = new ChatWebSocketHandler(messageService, registry, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), 1000, 1024, MAX_ENVELOPE_CHARS);
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.getPrincipal()).thenReturn(UsernamePasswordAuthenticationToken.authenticated(
+                user, null, AuthorityUtils.NO_AUTHORITIES));
+        handler.afterConnectionEstablished(session);
+    }
+
+    @Test
+    void handleMessage_ValidMessage_CreatesMessagesAndSendsAcceptedFrame() throws Exception {
+        when(messageService.createMessages(eq(user.userId()), any(MessageRequestDto.class)))
+                .thenReturn(MessageAcceptedDto.builder().messageId("msg-user-123").build());
+
+        handler.handleMessage(session, new TextMessage("{\"content\":\"I want to travel to Japan\"}"));
+
+        ArgumentCaptor<MessageRequestDto> request = ArgumentCaptor.forClass(MessageRequestDto.class);
+        verify(messageService).createMessages(eq(user.userId()), request.capture());
+        assertEquals("I want to travel to Japan", request.getValue().getContent());
+        JsonNode frame = sentFrames().getFirst();
+        assertEquals(MessageConstants.SOCKET_FRAME_ACCEPTED, frame.path("type").asText());
+        assertEquals("msg-user-123", frame.path("data").path("messageId").asText());
+    }
+
+    @Test
+    void handleMessage_NotJson_SendsErrorFrameWithoutCreatingMessages() throws Exception {
+        handler.handleMessage(session, new TextMessage("hello"));
+
+        JsonNode frame = sentFrames().getFirst();
+        assertEquals(MessageConstants.SOCKET_FRAME_ERROR, frame.path("type").asText());
+        assertEquals(MessageConstants.INVALID_SOCKET_MESSAGE, frame.path("data").asText());
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void handleMessage_BlankContent_SendsValidationErrorFrame() throws Exception {
+        handler.handleMessage(session, new TextMessage("{\"content\":\" \"}"));
+
+        JsonNode frame = sentFrames().getFirst();
+        assertEquals(MessageConstants.SOCKET_FRAME_ERROR, frame.path("type").asText());
+        assertEquals("Content cannot be blank", frame.path("data").asText());
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void handleMessage_PipelineFull_SendsErrorFrame() throws Exception {
+        when(messageService.createMessages(eq(user.userId()), any(MessageRequestDto.class)))
+                .thenThrow(new AdviceQueueFullException(MessageConstants.ADVICE_QUEUE_FULL));
+
+        handler.handleMessage(session, new TextMessage("{\"content\":\"Tokyo\"}"));
+
+        JsonNode frame = sentFrames().getFirst();
+        assertEquals(MessageConstants.SOCKET_FRAME_ERROR, frame.path("type").asText());
+        assertEquals(MessageConstants.ADVICE_QUEUE_FULL, frame.path("data").asText());
+    }
+
+    @Test
+    void handleMessage_CreateFails_SendsErrorFrameAndKeepsSessionOpen() throws Exception {
+        when(messageService.createMessages(eq(user.userId()), any(MessageRequestDto.class)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        handler.handleMessage(session, new TextMessage("{\"content\":\"Tokyo\"}"));
+
+        JsonNode frame = sentFrames().getFirst();
+        assertEquals(MessageConstants.SOCKET_FRAME_ERROR, frame.path("type").asText());
+        assertEquals(MessageConstants.SOCKET_MESSAGE_FAILED, frame.path("data").asText());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void handleMessage_MaxContentFullyEscaped_CreatesMessages() throws Exception {
+        when(messageService.createMessages(eq(user.userId()), any(MessageRequestDto.class)))
+                .thenReturn(MessageAcceptedDto.builder().messageId("msg-user-123").build());
+        String escaped = "\\u00e9".repeat(MessageConstants.MAX_CONTENT_CHARS);
+
+        handler.handleMessage(session, new TextMessage("{\"content\":\"" + escaped + "\"}"));
+
+        ArgumentCaptor<MessageRequestDto> request = ArgumentCaptor.forClass(MessageRequestDto.class);
+        verify(messageService).createMessages(eq(user.userId()), request.capture());
+        assertEquals("\u00e9".repeat(MessageConstants.MAX_CONTENT_CHARS), request.getValue().getContent());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void handleMessage_MessageInParts_AssembledBeforeCreatingMessages() throws Exception {
+        when(messageService.createMessages(eq(user.userId()), any(MessageRequestDto.class)))
+                .thenReturn(MessageAcceptedDto.builder().messageId("msg-user-123").build());
+
+        handler.handleMessage(session, new TextMessage("{\"content\":\"Kyo", false));
+        verifyNoInteractions(messageService);
+        handler.handleMessage(session, new TextMessage("to\"}", true));
+
+        ArgumentCaptor<MessageRequestDto> request = ArgumentCaptor.forClass(MessageRequestDto.class);
+        verify(messageService).createMessages(eq(user.userId()), request.capture());
+        assertEquals("Kyoto", request.getValue().getContent());
+    }
+
+    @Test
+    void handleMessage_OverSizeLimit_ClosesSession() throws Exception {
+        handler.handleMessage(session, new TextMessage("x".repeat(MAX_MESSAGE_CHARS), false));
+        handler.handleMessage(session, new TextMessage("x", false));
+
+        verify(session).close(CloseStatus.TOO_BIG_TO_PROCESS);
+        verifyNoInteractions(messageService);
+    }
+
+    private List<JsonNode> sentFrames() throws Exception {
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(sent.capture());
+        return sent.getAllValues().stream()
+                .map(message -> {
+                    try {
+                        return objectMapper.readTree(message.getPayload());
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .toList();
+    }
+}
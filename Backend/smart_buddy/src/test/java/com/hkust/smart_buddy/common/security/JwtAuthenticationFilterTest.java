@@ -0,0 +1,89 @@
+package com.hkust.smart_buddy.common.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.exception.InvalidJwtTokenException;
+import com.hkust.smart_buddy.common.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private MockFilterChain filterChain;
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthenticationFilter(jwtUtil, new ApiAuthenticationEntryPoint(new ObjectMapper()));
+        request = new MockHttpServletRequest("GET", "/smart_buddy/chatroom/chat-history");
+        response = new MockHttpServletResponse();
+        filterChain = new MockFilterChain();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ValidBearerToken_AuthenticatesUser() throws Exception {
+        Claims claims = Jwts.claims(Map.of(JwtConstants.USER_ID_CLAIM, "user-123")).setSubject("testuser");
+        when(jwtUtil.decodeToken("valid-jwt-token")).thenReturn(claims);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer valid-jwt-token");
+
+        filter.doFilter(request, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertTrue(authentication.isAuthenticated());
+        assertEquals(new AuthenticatedUser("user-123", "testuser"), authentication.getPrincipal());
+        assertNotNull(filterChain.getRequest());
+        verify(jwtUtil, times(1)).decodeToken("valid-jwt-token");
+    }
+
+    @Test
+    void doFilter_NoAuthorizationHeader_PassesThroughUnauthenticated() throws Exception {
+        filter.doFilter(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(filterChain.getRequest());
+        verifyNoInteractions(jwtUtil);
+    }
+
+    @Test
+    void doFilter_InvalidToken_RejectedWith401() throws Exception {
+        when(jwtUtil.decodeToken("expired-token"))
+                .thenThrow(new InvalidJwtTokenException(JwtConstants.TOKEN_EXPIRED));
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer expired-token");
+
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains(JwtConstants.TOKEN_EXPIRED));
+        assertNull(filterChain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -0,0 +1,56 @@
+package com.hkust.smart_buddy.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_AddedValues_AlwaysTrue() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.put("user" + i);
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+    }
+
+    @Test
+    void mightContain_AbsentValues_FalsePositivesNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.estimatedFalsePositiveRate(), 0.01);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1000000, 0.01, 7", "1000, 0.001, 10"})
+    void constructor_SizesForRate(long expectedInsertions, double falsePositiveRate, int expectedHashCount) {
+        BloomFilter filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+
+        assertEquals(expectedHashCount, filter.getHashCount());
+        assertEquals(0, filter.getBitCount() % Long.SIZE);
+        assertEquals(0.0, filter.estimatedFalsePositiveRate());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0, 0.01", "1000, 0", "1000, 1"})
+    void constructor_InvalidSizing_Throws(long expectedInsertions, double falsePositiveRate) {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(expectedInsertions, falsePositiveRate));
+    }
+}
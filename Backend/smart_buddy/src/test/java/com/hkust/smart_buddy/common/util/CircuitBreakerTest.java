@@ -0,0 +1,107 @@
+package com.hkust.smart_buddy.common.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker(4, 2, 0.5, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void onFailure_BelowMinimumCalls_StaysClosed() {
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_FailureRateReachesThreshold_OpensAndRefusesCalls() {
+        recordSuccesses(1);
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess_OldFailuresSlideOutOfWindow_StaysClosed() {
+        recordSuccesses(3);
+        recordFailures(1);
+        recordSuccesses(4);
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void tryAcquire_OpenDurationElapsed_LetsOneProbeThrough() {
+        recordFailures(2);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess_ProbeSucceeded_Closes() {
+        recordFailures(2);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_ProbeFailed_ReopensForAnotherPeriod() {
+        recordFailures(2);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.onFailure();
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void release_ProbeNotMade_NextCallMayProbe() {
+        recordFailures(2);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.release();
+
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    private void recordSuccesses(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void recordFailures(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+    }
+}
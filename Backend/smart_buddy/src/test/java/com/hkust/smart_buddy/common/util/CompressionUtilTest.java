@@ -0,0 +1,50 @@
+package com.hkust.smart_buddy.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionUtilTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "Best time to visit Tokyo?", "東京でおすすめのラーメン屋は？ 🍜"})
+    void inflate_DeflatedText_ReturnsOriginal(String text) {
+        assertEquals(text, CompressionUtil.inflate(CompressionUtil.deflate(text)));
+    }
+
+    @Test
+    void deflate_RepetitiveText_SmallerThanUtf8() {
+        String text = "Ai Advice for: where should I eat in Osaka? ".repeat(200);
+
+        byte[] compressed = CompressionUtil.deflate(text);
+
+        assertTrue(compressed.length < text.getBytes(StandardCharsets.UTF_8).length / 10,
+                "compressed to " + compressed.length + " bytes");
+        assertEquals(text, CompressionUtil.inflate(compressed));
+    }
+
+    @Test
+    void deflate_Null_ReturnsNull() {
+        assertNull(CompressionUtil.deflate(null));
+        assertNull(CompressionUtil.inflate(null));
+    }
+
+    @Test
+    void inflate_TruncatedData_Throws() {
+        byte[] compressed = CompressionUtil.deflate("Best time to visit Tokyo?".repeat(20));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressionUtil.inflate(Arrays.copyOf(compressed, compressed.length / 2)));
+    }
+
+    @Test
+    void inflate_NotCompressed_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressionUtil.inflate("plain text".getBytes(StandardCharsets.UTF_8)));
+    }
+}
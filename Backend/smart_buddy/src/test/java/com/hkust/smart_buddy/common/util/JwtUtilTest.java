@@ -1,28 +1,30 @@
 package com.hkust.smart_buddy.common.util;
 
 import com.hkust.smart_buddy.common.constants.JwtConstants;
+import com.hkust.smart_buddy.common.constants.MetricsConstants;
 import com.hkust.smart_buddy.common.exception.InvalidJwtTokenException;
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class JwtUtilTest {
 
     private JwtUtil jwtUtil;
+    private SimpleMeterRegistry meterRegistry;
     private final String secret = "dlNuWEwpXJch0fZYvy8TyE8NtNK9JIPN";
     private final long expiration = 3600000;
+    private final long cacheMaxSize = 100;
 
     @BeforeEach
     void setUp() {
-        jwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(jwtUtil, "secret", secret);
-        ReflectionTestUtils.setField(jwtUtil, "expiration", expiration);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(secret, expiration, cacheMaxSize, meterRegistry);
     }
 
     @Test
@@ -56,11 +58,48 @@ class JwtUtilTest {
             "Issued at should be within token generation time range. Expected: " + beforeGeneration + "-" + afterGeneration + ", Actual: " + actualIssuedAt);
     }
 
+    @Test
+    void decodeToken_SameTokenTwice_VerifiesSignatureOnlyOnce() {
+        String token = jwtUtil.generateToken("testuser", "user-123");
+
+        Claims first = jwtUtil.decodeToken(token);
+        Claims second = jwtUtil.decodeToken(token);
+
+        assertEquals(first.get(JwtConstants.USER_ID_CLAIM), second.get(JwtConstants.USER_ID_CLAIM));
+        assertEquals(1, jwtUtil.getVerifiedTokenCacheStats().missCount());
+        assertEquals(1, jwtUtil.getVerifiedTokenCacheStats().hitCount());
+    }
+
+    @Test
+    void decodeToken_InvalidTokenTwice_IsNeverCached() {
+        String tamperedToken = jwtUtil.generateToken("testuser", "user-123") + "XXXXX";
+
+        assertThrows(InvalidJwtTokenException.class, () -> jwtUtil.decodeToken(tamperedToken));
+        assertThrows(InvalidJwtTokenException.class, () -> jwtUtil.decodeToken(tamperedToken));
+
+        assertEquals(0, jwtUtil.getVerifiedTokenCacheStats().hitCount());
+        assertEquals(2, jwtUtil.getVerifiedTokenCacheStats().missCount());
+    }
+
+    @Test
+    void decodeToken_Failures_CountedByReason() {
+        JwtUtil shortExpirationJwtUtil = new JwtUtil(secret, -1000, cacheMaxSize, new SimpleMeterRegistry());
+        String expiredToken = shortExpirationJwtUtil.generateToken("testuser", "user-123");
+
+        assertThrows(InvalidJwtTokenException.class, () -> jwtUtil.decodeToken(expiredToken));
+        assertThrows(InvalidJwtTokenException.class, () -> jwtUtil.decodeToken(expiredToken));
+        assertThrows(InvalidJwtTokenException.class, () -> jwtUtil.decodeToken(""));
+
+        assertEquals(2, meterRegistry.get(MetricsConstants.JWT_DECODE_FAILURES)
+                .tag(MetricsConstants.TAG_REASON, JwtConstants.REASON_EXPIRED).counter().count());
+        assertEquals(1, meterRegistry.get(MetricsConstants.JWT_DECODE_FAILURES)
+                .tag(MetricsConstants.TAG_REASON, JwtConstants.REASON_NULL_OR_EMPTY).counter().count());
+        assertEquals(2, meterRegistry.get(MetricsConstants.JWT_VERIFY_TIMER).timer().count());
+    }
+
     @Test
     void decodeToken_ExpiredToken_ThrowsInvalidJwtTokenException() {
-        JwtUtil shortExpirationJwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(shortExpirationJwtUtil, "secret", secret);
-        ReflectionTestUtils.setField(shortExpirationJwtUtil, "expiration", -1000);
+        JwtUtil shortExpirationJwtUtil = new JwtUtil(secret, -1000, cacheMaxSize, meterRegistry);
         String token = shortExpirationJwtUtil.generateToken("testuser", "user-123");
 
         InvalidJwtTokenException exception = assertThrows(InvalidJwtTokenException.class, () ->
@@ -92,9 +131,7 @@ class JwtUtilTest {
     void decodeToken_WrongSecret_ThrowsInvalidJwtTokenException() {
         String token = jwtUtil.generateToken("testuser", "user-123");
 
-        JwtUtil wrongSecretJwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(wrongSecretJwtUtil, "secret", "wrongsecret123456789012345678901234");
-        ReflectionTestUtils.setField(wrongSecretJwtUtil, "expiration", expiration);
+        JwtUtil wrongSecretJwtUtil = new JwtUtil("wrongsecret123456789012345678901234", expiration, cacheMaxSize, meterRegistry);
 
         InvalidJwtTokenException exception = assertThrows(InvalidJwtTokenException.class, () ->
             wrongSecretJwtUtil.decodeToken(token));
@@ -0,0 +1,128 @@
+package com.hkust.smart_buddy.common.util;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidUtilTest {
+
+    private static final String ID_CONSTRAINT = "UK_MESSAGE_MESSAGEID";
+
+    @Test
+    void generateTimeOrderedUuid_SetsVersionSevenAndRfcVariant() {
+        UUID uuid = UUID.fromString(UuidUtil.generateTimeOrderedUuid());
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    void generateTimeOrderedUuid_EmbedsCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UUID.fromString(UuidUtil.generateTimeOrderedUuid());
+        long after = System.currentTimeMillis();
+
+        // The sequence may borrow a few milliseconds ahead when thousands of IDs are issued in one millisecond
+        long timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= before && timestamp <= after + 5,
+            "Embedded timestamp should be close to generation time. Expected: " + before + "-" + after + ", Actual: " + timestamp);
+    }
+
+    @Test
+    void generateTimeOrderedUuid_ConsecutiveIds_AreUniqueAndStrictlyIncreasing() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            ids.add(UuidUtil.generateTimeOrderedUuid());
+        }
+
+        Set<String> uniqueIds = new HashSet<>(ids);
+        assertEquals(ids.size(), uniqueIds.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0,
+                "IDs should sort in generation order: " + ids.get(i - 1) + " then " + ids.get(i));
+        }
+    }
+
+    @Test
+    void insertWithUniqueId_DuplicateKey_RetriesWithNewId() {
+        List<String> attemptedIds = new ArrayList<>();
+
+        String result = UuidUtil.insertWithUniqueId(ID_CONSTRAINT, id -> {
+            attemptedIds.add(id);
+            if (attemptedIds.size() == 1) {
+                throw duplicateKey("MESSAGE." + ID_CONSTRAINT);
+            }
+            return id;
+        });
+
+        assertEquals(2, attemptedIds.size());
+        assertNotEquals(attemptedIds.get(0), attemptedIds.get(1));
+        assertEquals(attemptedIds.get(1), result);
+    }
+
+    @Test
+    void insertWithUniqueId_AlwaysDuplicate_ThrowsAfterBoundedAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(DataIntegrityViolationException.class, () ->
+            UuidUtil.insertWithUniqueId(ID_CONSTRAINT, id -> {
+                attempts.incrementAndGet();
+                throw duplicateKey("MESSAGE." + ID_CONSTRAINT);
+            }));
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void insertWithUniqueId_DuplicateUsername_ThrowsAfterOneAttempt() {
+        AtomicInteger attempts = new AtomicInteger();
+        DataIntegrityViolationException duplicateUsername = duplicateKey("USER.USERNAME");
+
+        DataIntegrityViolationException thrown = assertThrows(DataIntegrityViolationException.class, () ->
+            UuidUtil.insertWithUniqueId("USERID", id -> {
+                attempts.incrementAndGet();
+                throw duplicateUsername;
+            }));
+
+        assertSame(duplicateUsername, thrown);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void insertWithUniqueId_ViolationWithoutConstraintName_ThrowsAfterOneAttempt() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(DataIntegrityViolationException.class, () ->
+            UuidUtil.insertWithUniqueId(ID_CONSTRAINT, id -> {
+                attempts.incrementAndGet();
+                throw new DataIntegrityViolationException("Column 'CONTENT' cannot be null");
+            }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void isViolationOf_MatchesLastSegmentAndGeneratedIndexSuffix() {
+        assertTrue(UuidUtil.isViolationOf(duplicateKey(ID_CONSTRAINT), ID_CONSTRAINT));
+        assertTrue(UuidUtil.isViolationOf(duplicateKey("MESSAGE." + ID_CONSTRAINT), ID_CONSTRAINT));
+        assertTrue(UuidUtil.isViolationOf(duplicateKey("PUBLIC." + ID_CONSTRAINT + "_INDEX_6"), ID_CONSTRAINT));
+        assertFalse(UuidUtil.isViolationOf(duplicateKey("MESSAGE_ARCHIVE.UK_MESSAGE_ARCHIVE_MESSAGEID"), ID_CONSTRAINT));
+        assertFalse(UuidUtil.isViolationOf(duplicateKey("USER.USERNAME"), "USERID"));
+    }
+
+    private static DataIntegrityViolationException duplicateKey(String constraintName) {
+        SQLException sqlException = new SQLException("Duplicate entry for key '" + constraintName + "'", "23000", 1062);
+        return new DataIntegrityViolationException("could not execute statement",
+            new ConstraintViolationException("could not execute statement", sqlException, constraintName));
+    }
+}